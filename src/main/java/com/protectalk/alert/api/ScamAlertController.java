@@ -1,19 +1,28 @@
 package com.protectalk.alert.api;
 
+import com.protectalk.alert.dto.ScamAlertBatchResponseDto;
 import com.protectalk.alert.dto.ScamAlertRequestDto;
 import com.protectalk.alert.dto.ScamAlertResponseDto;
 import com.protectalk.alert.service.ScamAlertService;
+import com.protectalk.messaging.deliverylog.DeliveryLogEntryDto;
 import com.protectalk.security.model.FirebasePrincipal;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/alerts")
 @RequiredArgsConstructor
@@ -22,19 +31,72 @@ public class ScamAlertController {
     private final ScamAlertService orchestrator;
 
     @PostMapping("/report")
-    public ResponseEntity<ScamAlertResponseDto> report(@AuthenticationPrincipal FirebasePrincipal me,
-                                                       @RequestBody @Valid ScamAlertRequestDto req) throws Exception {
+    public CompletableFuture<ResponseEntity<ScamAlertResponseDto>> report(@AuthenticationPrincipal FirebasePrincipal me,
+                                                                          @RequestBody @Valid ScamAlertRequestDto req) {
         log.info("Scam alert received from UID: {} for caller: {} with risk: {} score: {}",
                 me.uid(), req.callerNumber(), req.riskLevel(), req.modelScore());
 
+        // The request thread is released while the push send is in flight
+        return orchestrator.handle(me.uid(), req)
+                           .whenComplete((response, error) -> {
+                               if (error != null) {
+                                   log.error("Failed to process scam alert for UID: {} eventId: {}",
+                                           me.uid(), req.eventId(), error);
+                               } else {
+                                   log.info("Scam alert processed - UID: {} eventId: {} notified: {} reason: {}",
+                                           me.uid(), req.eventId(), response.notified(), response.reason());
+                               }
+                           })
+                           .thenApply(ScamAlertController::toResponseEntity);
+    }
+
+    @PostMapping("/report-batch")
+    public CompletableFuture<ResponseEntity<ScamAlertBatchResponseDto>> reportBatch(@AuthenticationPrincipal FirebasePrincipal me,
+                                                                                    @RequestBody List<ScamAlertRequestDto> requests) {
+        log.info("Scam alert batch received from UID: {} size: {}", me.uid(), requests.size());
+        CompletableFuture<ScamAlertBatchResponseDto> batch;
         try {
-            ScamAlertResponseDto response = orchestrator.handle(me.uid(), req);
-            log.info("Scam alert processed - UID: {} eventId: {} notified: {} reason: {}",
-                    me.uid(), req.eventId(), response.notified(), response.reason());
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Failed to process scam alert for UID: {} eventId: {}", me.uid(), req.eventId(), e);
-            throw e;
+            batch = orchestrator.handleBatch(me.uid(), requests);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid scam alert batch from UID: {} - {}", me.uid(), e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
         }
+        return batch.whenComplete((response, error) -> {
+                        if (error != null) {
+                            log.error("Failed to process scam alert batch for UID: {} size: {}",
+                                    me.uid(), requests.size(), error);
+                        }
+                    })
+                    .thenApply(response -> {
+                        boolean pending = response.results().stream()
+                                                  .anyMatch(ScamAlertResponseDto::isPending);
+                        return pending ? ResponseEntity.accepted().body(response) : ResponseEntity.ok(response);
+                    });
+    }
+
+    @GetMapping("/{callId}/delivery")
+    public ResponseEntity<ScamAlertResponseDto> delivery(@AuthenticationPrincipal FirebasePrincipal me,
+                                                         @PathVariable String callId) {
+        log.debug("Delivery status requested by UID: {} for callId: {}", me.uid(), callId);
+        return orchestrator.getDeliveryStatus(me.uid(), callId)
+                           .map(ScamAlertController::toResponseEntity)
+                           .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{callId}/delivery-log")
+    public ResponseEntity<List<DeliveryLogEntryDto>> deliveryLog(@AuthenticationPrincipal FirebasePrincipal me,
+                                                                 @PathVariable String callId,
+                                                                 @RequestParam(defaultValue = "100") int limit) {
+        log.debug("Delivery log requested by UID: {} for callId: {}", me.uid(), callId);
+        return orchestrator.getDeliveryLog(me.uid(), callId, limit)
+                           .map(ResponseEntity::ok)
+                           .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Delivery still running in the background or deferred -> 202 Accepted, otherwise the final outcome
+    private static ResponseEntity<ScamAlertResponseDto> toResponseEntity(ScamAlertResponseDto response) {
+        return response.isPending()
+               ? ResponseEntity.accepted().body(response)
+               : ResponseEntity.ok(response);
     }
 }
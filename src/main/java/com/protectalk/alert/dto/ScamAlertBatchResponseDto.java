@@ -0,0 +1,9 @@
+package com.protectalk.alert.dto;
+
+import java.util.List;
+
+public record ScamAlertBatchResponseDto(
+    int received,
+    int duplicates,                       // already processed (earlier request or repeated in this batch)
+    List<ScamAlertResponseDto> results    // one per request item, same order
+) {}
@@ -1,5 +1,5 @@
 package com.protectalk.alert.dto;
 
 public enum ScamAlertReason {
-    OK, BELOW_THRESHOLD, NO_CONTACTS, DELIVERY_FAILED, PARTIAL_DELIVERY
+    OK, BELOW_THRESHOLD, NO_CONTACTS, DELIVERY_FAILED, PARTIAL_DELIVERY, DELIVERY_PENDING, DELIVERY_DEFERRED
 }
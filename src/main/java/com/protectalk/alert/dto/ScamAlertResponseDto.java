@@ -20,7 +20,23 @@ public record ScamAlertResponseDto(
     public static ScamAlertResponseDto deliveryFailed(String callId, int recipients, int invalids) {
         return new ScamAlertResponseDto(callId, false, ScamAlertReason.DELIVERY_FAILED, recipients, 0, invalids);
     }
+    public static ScamAlertResponseDto pending(String callId) {
+        return new ScamAlertResponseDto(callId, false, ScamAlertReason.DELIVERY_PENDING, null, null, null);
+    }
+    // Provider unavailable (circuit open): nothing sent yet, the alert is queued for a later attempt
+    public static ScamAlertResponseDto deferred(String callId) {
+        return new ScamAlertResponseDto(callId, false, ScamAlertReason.DELIVERY_DEFERRED, null, null, null);
+    }
     public static ScamAlertResponseDto partial(String callId, int recipients, int notifiedCount, int invalids) {
         return new ScamAlertResponseDto(callId, true, ScamAlertReason.PARTIAL_DELIVERY, recipients, notifiedCount, invalids);
     }
+
+    // Delivery not decided yet (pending or deferred)
+    public boolean isPending() {
+        return reason == ScamAlertReason.DELIVERY_PENDING || reason == ScamAlertReason.DELIVERY_DEFERRED;
+    }
+
+    public ScamAlertResponseDto withCallId(String callId) {
+        return new ScamAlertResponseDto(callId, notified, reason, recipients, notifiedCount, invalidTokenCount);
+    }
 }
@@ -1,7 +1,9 @@
 // src/main/java/com/protectalk/alerts/model/CallRecordDocument.java
 package com.protectalk.alert.model;
 
+import com.protectalk.alert.dto.ScamAlertReason;
 import com.protectalk.alert.dto.ScamAlertRequestDto;
+import com.protectalk.alert.dto.ScamAlertResponseDto;
 import lombok.*;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.CreatedDate;
@@ -35,6 +37,8 @@ public class AlertRecordEntity {
 
     private Instant occurredAt;             // when the call happened
     private String messageId;       // FCM message ref (set after send)
+    private DeliveryOutcome delivery; // final fan-out outcome (set after send)
+    private Dispatch dispatch;        // outbox entry: notification still owed, removed with the outcome
 
     @CreatedDate
     private Instant createdAt;
@@ -44,6 +48,34 @@ public class AlertRecordEntity {
 
     private Instant deletedAt;     // soft delete marker
 
+    public record DeliveryOutcome(
+            ScamAlertReason reason,
+            boolean notified,
+            Integer recipients,
+            Integer notifiedCount,
+            Integer invalidTokenCount,
+            Instant completedAt
+    ) {
+        public static DeliveryOutcome from(ScamAlertResponseDto response) {
+            return new DeliveryOutcome(response.reason(), response.notified(), response.recipients(),
+                                       response.notifiedCount(), response.invalidTokenCount(), Instant.now());
+        }
+
+        public ScamAlertResponseDto toResponse(String callId) {
+            return new ScamAlertResponseDto(callId, notified, reason, recipients, notifiedCount, invalidTokenCount);
+        }
+    }
+
+    /**
+     * Pending notification written with the alert itself, so both land atomically.
+     * Claimable by the outbox dispatcher once leaseUntil has passed.
+     */
+    public record Dispatch(
+            Instant leaseUntil,
+            String leaseOwner,
+            int attempts
+    ) {}
+
     public static AlertRecordEntity from(String userId, ScamAlertRequestDto req) {
         AlertRecordEntity entity = new AlertRecordEntity();
         entity.setEventId(req.eventId());
@@ -0,0 +1,40 @@
+package com.protectalk.alert.repo;
+
+import com.protectalk.alert.model.AlertRecordEntity;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+/**
+ * Makes sure the indexes alert ingestion relies on exist even when Spring Data auto index creation is off.
+ * - uk_user_event rejects replays (insert-first idempotency).
+ * - ix_dispatch_lease lets the outbox dispatcher find due entries without scanning delivered alerts.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlertIndexInitializer {
+
+    private final MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void ensureIndexes() {
+        var index = new CompoundIndexDefinition(new Document("userId", 1).append("eventId", 1))
+                .named("uk_user_event")
+                .unique();
+        String name = mongoTemplate.indexOps(AlertRecordEntity.class).ensureIndex(index);
+        log.info("Ensured alert index: {}", name);
+
+        var dispatchIndex = new Index().on("dispatch.leaseUntil", Sort.Direction.ASC)
+                                       .named("ix_dispatch_lease")
+                                       .sparse();
+        name = mongoTemplate.indexOps(AlertRecordEntity.class).ensureIndex(dispatchIndex);
+        log.info("Ensured alert index: {}", name);
+    }
+}
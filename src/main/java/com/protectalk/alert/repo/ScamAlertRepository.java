@@ -6,10 +6,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface ScamAlertRepository extends MongoRepository<AlertRecordEntity, String> {
+public interface ScamAlertRepository extends MongoRepository<AlertRecordEntity, String>, ScamAlertRepositoryCustom {
 
     List<AlertRecordEntity> findByUserId(String userId);
 
@@ -18,6 +19,7 @@ public interface ScamAlertRepository extends MongoRepository<AlertRecordEntity,
 
     Optional<AlertRecordEntity> findByEventId(String eventId);
     Optional<AlertRecordEntity> findByUserIdAndEventId(String userId, String eventId);
+    List<AlertRecordEntity> findByUserIdAndEventIdIn(String userId, Collection<String> eventIds);
 
     long countByUserId(String userId);
 }
@@ -0,0 +1,34 @@
+package com.protectalk.alert.repo;
+
+import com.protectalk.alert.model.AlertRecordEntity;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface ScamAlertRepositoryCustom {
+
+    // Set only the delivery outcome (and clear the outbox entry), leaving the rest of the records untouched
+    void updateDelivery(Collection<String> alertIds, AlertRecordEntity.DeliveryOutcome delivery);
+
+    /**
+     * Lease up to {@code limit} outbox entries whose lease has expired. Several nodes may call this
+     * concurrently; an entry is only ever granted to one claim.
+     * @return the claimed records, with their dispatch attempts already incremented
+     */
+    List<AlertRecordEntity> claimDispatchBatch(String claimId, Instant now, Instant leaseUntil, int limit);
+
+    // Hand outbox entries back, claimable again from retryAt
+    void releaseDispatch(Collection<String> alertIds, Instant retryAt);
+
+    // Hand outbox entries back without counting the attempt (nothing was sent)
+    void deferDispatch(Collection<String> alertIds, Instant retryAt);
+
+    /**
+     * Unordered bulk insert in a single round trip. Records rejected by the uk_user_event index
+     * are skipped; any other write error is rethrown.
+     * @return ids of the records that were actually inserted
+     */
+    Set<String> insertIgnoringDuplicates(List<AlertRecordEntity> records);
+}
@@ -0,0 +1,110 @@
+package com.protectalk.alert.repo;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.protectalk.alert.model.AlertRecordEntity;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.util.MongoDbErrorCodes;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class ScamAlertRepositoryCustomImpl implements ScamAlertRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void updateDelivery(Collection<String> alertIds, AlertRecordEntity.DeliveryOutcome delivery) {
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(alertIds)),
+                                  new Update().set("delivery", delivery).unset("dispatch").set("updatedAt", Instant.now()),
+                                  AlertRecordEntity.class);
+    }
+
+    @Override
+    public List<AlertRecordEntity> claimDispatchBatch(String claimId, Instant now, Instant leaseUntil, int limit) {
+        var due = Query.query(Criteria.where("dispatch.leaseUntil").lte(now))
+                       .with(Sort.by("dispatch.leaseUntil"))
+                       .limit(limit);
+        due.fields().include("_id");
+        List<String> candidateIds = mongoTemplate.find(due, AlertRecordEntity.class).stream()
+                                                 .map(AlertRecordEntity::getId)
+                                                 .toList();
+        if (candidateIds.isEmpty()) {
+            return List.of();
+        }
+
+        // Re-check the lease in the update: candidates another node claimed in between are skipped
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(candidateIds).and("dispatch.leaseUntil").lte(now)),
+                                  new Update().set("dispatch.leaseOwner", claimId)
+                                              .set("dispatch.leaseUntil", leaseUntil)
+                                              .inc("dispatch.attempts", 1),
+                                  AlertRecordEntity.class);
+        return mongoTemplate.find(Query.query(Criteria.where("dispatch.leaseOwner").is(claimId)), AlertRecordEntity.class);
+    }
+
+    @Override
+    public void releaseDispatch(Collection<String> alertIds, Instant retryAt) {
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(alertIds).and("dispatch").exists(true)),
+                                  new Update().set("dispatch.leaseUntil", retryAt).unset("dispatch.leaseOwner"),
+                                  AlertRecordEntity.class);
+    }
+
+    @Override
+    public void deferDispatch(Collection<String> alertIds, Instant retryAt) {
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(alertIds).and("dispatch").exists(true)),
+                                  new Update().set("dispatch.leaseUntil", retryAt)
+                                              .unset("dispatch.leaseOwner")
+                                              .inc("dispatch.attempts", -1),
+                                  AlertRecordEntity.class);
+    }
+
+    @Override
+    public Set<String> insertIgnoringDuplicates(List<AlertRecordEntity> records) {
+        if (records.isEmpty()) {
+            return Set.of();
+        }
+
+        // Ids are assigned up front so callers know them without re-reading;
+        // auditing treats records with an id as existing, so createdAt is set here too
+        Instant now = Instant.now();
+        Set<String> inserted = new HashSet<>();
+        for (AlertRecordEntity record : records) {
+            if (record.getId() == null) {
+                record.setId(new ObjectId().toHexString());
+            }
+            if (record.getCreatedAt() == null) {
+                record.setCreatedAt(now);
+            }
+            inserted.add(record.getId());
+        }
+
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AlertRecordEntity.class)
+                         .insert(records)
+                         .execute();
+        } catch (DataAccessException e) {
+            if (!(e.getCause() instanceof MongoBulkWriteException bulk)) {
+                throw e;
+            }
+            for (BulkWriteError error : bulk.getWriteErrors()) {
+                if (!MongoDbErrorCodes.isDuplicateKeyCode(error.getCode())) {
+                    throw e;
+                }
+                inserted.remove(records.get(error.getIndex()).getId());
+            }
+        }
+        return inserted;
+    }
+}
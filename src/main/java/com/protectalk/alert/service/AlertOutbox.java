@@ -0,0 +1,122 @@
+package com.protectalk.alert.service;
+
+import com.protectalk.alert.dto.ScamAlertResponseDto;
+import com.protectalk.alert.model.AlertRecordEntity;
+import com.protectalk.alert.repo.ScamAlertRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Notification outbox embedded in call_records: an alert that must be announced is inserted with a
+ * {@link AlertRecordEntity.Dispatch} entry, which is cleared when the delivery outcome is recorded.
+ * - Inline delivery (sync/async modes) holds a lease on the entry; if the node dies the lease runs out
+ *   and {@link AlertOutboxDispatcher} picks the alert up (at-least-once).
+ * - In outbox mode entries are claimable immediately and only the dispatcher sends.
+ * - Failed sends are handed back with exponential backoff until {@code max-attempts}.
+ * - Sends deferred because the provider is down are handed back without using up an attempt.
+ */
+@Slf4j
+@Component
+public class AlertOutbox {
+
+    private final ScamAlertRepository scamAlertRepository;
+    private final String              nodeId;
+    private final Duration            inlineLease;
+    private final Duration            claimLease;
+    private final int                 maxAttempts;
+    private final Duration            initialBackoff;
+    private final Duration            maxBackoff;
+
+    public AlertOutbox(ScamAlertRepository scamAlertRepository,
+                       @Value("${protectalk.alerts.outbox.inline-lease:PT2M}") Duration inlineLease,
+                       @Value("${protectalk.alerts.outbox.claim-lease:PT2M}") Duration claimLease,
+                       @Value("${protectalk.alerts.outbox.max-attempts:5}") int maxAttempts,
+                       @Value("${protectalk.alerts.outbox.initial-backoff:PT5S}") Duration initialBackoff,
+                       @Value("${protectalk.alerts.outbox.max-backoff:PT5M}") Duration maxBackoff) {
+        this.scamAlertRepository = scamAlertRepository;
+        this.nodeId = resolveNodeId();
+        this.inlineLease = inlineLease;
+        this.claimLease = claimLease;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    // Entry for an alert this node is about to deliver itself
+    public AlertRecordEntity.Dispatch claimedInline() {
+        return new AlertRecordEntity.Dispatch(Instant.now().plus(inlineLease), nodeId, 1);
+    }
+
+    // Entry left entirely to the dispatcher
+    public AlertRecordEntity.Dispatch queued() {
+        return new AlertRecordEntity.Dispatch(Instant.now(), null, 0);
+    }
+
+    public List<AlertRecordEntity> claimBatch(int limit) {
+        Instant now = Instant.now();
+        String claimId = nodeId + ":" + new ObjectId().toHexString();
+        return scamAlertRepository.claimDispatchBatch(claimId, now, now.plus(claimLease), limit);
+    }
+
+    public boolean isExhausted(AlertRecordEntity alert) {
+        return attempts(List.of(alert)) > maxAttempts;
+    }
+
+    /**
+     * Hand the alerts back for another attempt after a failed send.
+     * @return false when their attempts are used up; the caller records the failure instead
+     */
+    public boolean retryLater(List<AlertRecordEntity> alerts) {
+        int attempts = attempts(alerts);
+        if (attempts >= maxAttempts) {
+            return false;
+        }
+        long ceiling = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempts - 1, 20));
+        Instant retryAt = Instant.now().plusMillis(Math.max(ceiling, 0));
+        scamAlertRepository.releaseDispatch(alerts.stream().map(AlertRecordEntity::getId).toList(), retryAt);
+        log.debug("Outbox entries released for retry - alertId: {} attempts: {} retryAt: {}",
+                  alerts.get(0).getId(), attempts, retryAt);
+        return true;
+    }
+
+    // Nothing was sent (provider circuit open): retry once it may be back, at the earliest after initial-backoff
+    public void defer(List<AlertRecordEntity> alerts, Duration retryAfter) {
+        Duration delay = retryAfter != null && retryAfter.compareTo(initialBackoff) > 0 ? retryAfter : initialBackoff;
+        Instant retryAt = Instant.now().plus(delay);
+        scamAlertRepository.deferDispatch(alerts.stream().map(AlertRecordEntity::getId).toList(), retryAt);
+        log.debug("Outbox entries deferred - alertId: {} retryAt: {}", alerts.get(0).getId(), retryAt);
+    }
+
+    // Give up on alerts whose attempts ran out while nobody was around to record it (e.g. repeated crashes)
+    public void abandon(List<AlertRecordEntity> alerts) {
+        var outcome = AlertRecordEntity.DeliveryOutcome.from(ScamAlertResponseDto.deliveryFailed(alerts.get(0).getId(), 0, 0));
+        scamAlertRepository.updateDelivery(alerts.stream().map(AlertRecordEntity::getId).toList(), outcome);
+        log.warn("Outbox entries abandoned after {} attempts - alerts: {}", maxAttempts, alerts.size());
+    }
+
+    private static int attempts(List<AlertRecordEntity> alerts) {
+        return alerts.stream()
+                     .map(AlertRecordEntity::getDispatch)
+                     .mapToInt(dispatch -> dispatch == null ? 1 : Math.max(dispatch.attempts(), 1))
+                     .max()
+                     .orElse(1);
+    }
+
+    private static String resolveNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
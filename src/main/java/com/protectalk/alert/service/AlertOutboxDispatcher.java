@@ -0,0 +1,124 @@
+package com.protectalk.alert.service;
+
+import com.protectalk.alert.model.AlertRecordEntity;
+import com.protectalk.messaging.NotificationGateway;
+import com.protectalk.messaging.NotificationPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drains the alert outbox in batches.
+ * - Each poll leases up to {@code batch-size} due entries, so several nodes can share the work.
+ * - Claimed alerts are grouped per user and announced with one (summary) push per user.
+ * - One batch is in flight per node; a full batch triggers the next poll right away, so bursts are
+ *   worked off at the provider's pace instead of failing.
+ * - Nothing is claimed while the provider circuit is open; once it half-opens the dispatcher's sends act as
+ *   probes and the backlog drains on its own when the circuit closes.
+ */
+@Slf4j
+@Component
+public class AlertOutboxDispatcher {
+
+    private final AlertOutbox         alertOutbox;
+    private final ScamAlertService    scamAlertService;
+    private final NotificationGateway notificationGateway;
+    private final TaskScheduler       taskScheduler;
+    private final int                 batchSize;
+    private final AtomicBoolean       inFlight = new AtomicBoolean();
+    private final Counter             dispatched;
+    private final Counter             abandoned;
+
+    public AlertOutboxDispatcher(AlertOutbox alertOutbox, ScamAlertService scamAlertService,
+                                 NotificationGateway notificationGateway,
+                                 TaskScheduler taskScheduler,
+                                 @Value("${protectalk.alerts.outbox.enabled:true}") boolean enabled,
+                                 @Value("${protectalk.alerts.outbox.poll-interval:PT1S}") Duration pollInterval,
+                                 @Value("${protectalk.alerts.outbox.batch-size:100}") int batchSize,
+                                 MeterRegistry meterRegistry) {
+        this.alertOutbox = alertOutbox;
+        this.scamAlertService = scamAlertService;
+        this.notificationGateway = notificationGateway;
+        this.taskScheduler = taskScheduler;
+        this.batchSize = batchSize;
+        this.dispatched = meterRegistry.counter("alerts.outbox.dispatched");
+        this.abandoned = meterRegistry.counter("alerts.outbox.abandoned");
+
+        if (enabled) {
+            taskScheduler.scheduleWithFixedDelay(this::poll, pollInterval);
+        }
+    }
+
+    public void poll() {
+        // the outbox holds alerts only; an entry whose lane is still unavailable is deferred again on send
+        boolean available = notificationGateway.isAvailable(NotificationPriority.CRITICAL)
+                             || notificationGateway.isAvailable(NotificationPriority.HIGH);
+        if (!available || !inFlight.compareAndSet(false, true)) {
+            return;
+        }
+        List<AlertRecordEntity> claimed;
+        try {
+            claimed = alertOutbox.claimBatch(batchSize);
+        } catch (Exception e) {
+            inFlight.set(false);
+            log.error("Failed to claim alert outbox entries", e);
+            return;
+        }
+        if (claimed.isEmpty()) {
+            inFlight.set(false);
+            return;
+        }
+
+        Map<String, List<AlertRecordEntity>> byUser = new LinkedHashMap<>();
+        List<AlertRecordEntity> exhausted = new ArrayList<>();
+        for (AlertRecordEntity alert : claimed) {
+            if (alertOutbox.isExhausted(alert)) {
+                exhausted.add(alert);
+            } else {
+                byUser.computeIfAbsent(alert.getUserId(), userId -> new ArrayList<>()).add(alert);
+            }
+        }
+        if (!exhausted.isEmpty()) {
+            abandon(exhausted);
+        }
+
+        log.debug("Dispatching alert outbox batch - claimed: {} users: {}", claimed.size(), byUser.size());
+        List<CompletableFuture<Void>> sends = new ArrayList<>(byUser.size());
+        byUser.forEach((userId, alerts) -> sends.add(
+                scamAlertService.dispatch(userId, alerts)
+                                .thenRun(() -> dispatched.increment(alerts.size()))
+                                .exceptionally(error -> {
+                                    log.error("Outbox dispatch failed - UID: {} alertId: {}",
+                                              userId, alerts.get(0).getId(), error);
+                                    return null;
+                                })));
+
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).whenComplete((done, error) -> {
+            inFlight.set(false);
+            if (claimed.size() >= batchSize) {
+                taskScheduler.schedule(this::poll, Instant.now());
+            }
+        });
+    }
+
+    private void abandon(List<AlertRecordEntity> exhausted) {
+        try {
+            alertOutbox.abandon(exhausted);
+            abandoned.increment(exhausted.size());
+        } catch (Exception e) {
+            log.error("Failed to abandon {} exhausted alert outbox entries", exhausted.size(), e);
+        }
+    }
+}
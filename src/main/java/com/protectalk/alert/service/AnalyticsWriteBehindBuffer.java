@@ -0,0 +1,184 @@
+package com.protectalk.alert.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.protectalk.alert.model.AlertRecordEntity;
+import com.protectalk.alert.repo.ScamAlertRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind stage for below-threshold alerts, which are only kept for analytics.
+ * - Records are buffered in a bounded queue and written with one unordered bulk insert.
+ * - A flush runs when {@code flush-size} records are waiting or every {@code flush-interval}.
+ * - When the queue is full the record is written inline, so memory stays bounded and nothing is dropped.
+ * - Remaining records are flushed on shutdown. Records still buffered when the process dies are lost,
+ *   which is the accepted trade-off for analytics-only data.
+ * - The id handed out before the write is derived from (userId, eventId), so a retry answered by another node
+ *   gets the same id and the two buffered copies are stored once. The id is provisional until the flush: it may
+ *   not resolve yet ({@link #findBuffered}), and if the event was already stored under another id (e.g. an
+ *   above-threshold retry) it maps to that one here for the recent-events ttl ({@link #resolve}).
+ */
+@Slf4j
+@Component
+public class AnalyticsWriteBehindBuffer {
+
+    private final ScamAlertRepository              scamAlertRepository;
+    private final TaskScheduler                    taskScheduler;
+    private final boolean                          enabled;
+    private final int                              flushSize;
+    private final BlockingQueue<AlertRecordEntity> queue;
+    private final AtomicBoolean                    flushScheduled = new AtomicBoolean();
+    private final Cache<String, String>            superseded;  // provisional id -> id the event was stored under
+    private final Counter                          flushedRecords;
+    private final Counter                          failedRecords;
+    private final Counter                          duplicateRecords;
+
+    public AnalyticsWriteBehindBuffer(ScamAlertRepository scamAlertRepository, TaskScheduler taskScheduler,
+                                      @Value("${protectalk.alerts.write-behind.enabled:true}") boolean enabled,
+                                      @Value("${protectalk.alerts.write-behind.capacity:10000}") int capacity,
+                                      @Value("${protectalk.alerts.write-behind.flush-size:500}") int flushSize,
+                                      @Value("${protectalk.alerts.write-behind.flush-interval:PT1S}") Duration flushInterval,
+                                      @Value("${protectalk.alerts.recent-events.ttl:PT10M}") Duration supersededTtl,
+                                      MeterRegistry meterRegistry) {
+        this.scamAlertRepository = scamAlertRepository;
+        this.taskScheduler = taskScheduler;
+        this.enabled = enabled;
+        this.flushSize = flushSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.superseded = Caffeine.newBuilder()
+                                  .maximumSize(capacity)
+                                  .expireAfterWrite(supersededTtl)
+                                  .build();
+        this.flushedRecords = meterRegistry.counter("alerts.write_behind.flushed");
+        this.failedRecords = meterRegistry.counter("alerts.write_behind.failed");
+        this.duplicateRecords = meterRegistry.counter("alerts.write_behind.duplicates");
+        meterRegistry.gauge("alerts.write_behind.queued", queue, BlockingQueue::size);
+
+        if (enabled) {
+            taskScheduler.scheduleWithFixedDelay(this::flush, flushInterval);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Buffer a record for a later bulk insert.
+     * @return the record's provisional id, the same on every node for the same (userId, eventId)
+     */
+    public String enqueue(AlertRecordEntity record) {
+        record.setId(record.getEventId() != null ? eventRecordId(record.getUserId(), record.getEventId())
+                                                 : new ObjectId().toHexString());
+        record.setCreatedAt(Instant.now());
+
+        if (!queue.offer(record)) {
+            log.warn("Analytics write-behind buffer full ({}), writing alertId: {} inline",
+                     queue.size(), record.getId());
+            write(List.of(record));
+            return record.getId();
+        }
+        if (queue.size() >= flushSize && flushScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::flush, Instant.now());
+        }
+        return record.getId();
+    }
+
+    /**
+     * The id a provisional id was stored under, if its event turned out to exist already; otherwise the id itself.
+     */
+    public String resolve(String alertId) {
+        String winner = superseded.getIfPresent(alertId);
+        return winner != null ? winner : alertId;
+    }
+
+    /**
+     * A record that is still waiting for its flush on this node.
+     */
+    public Optional<AlertRecordEntity> findBuffered(String alertId) {
+        return queue.stream().filter(record -> record.getId().equals(alertId)).findFirst();
+    }
+
+    public void flush() {
+        flushScheduled.set(false);
+        List<AlertRecordEntity> batch = new ArrayList<>(flushSize);
+        while (queue.drainTo(batch, flushSize) > 0) {
+            write(batch);
+            batch = new ArrayList<>(flushSize);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Flushing {} buffered analytics alert records before shutdown", queue.size());
+        flush();
+    }
+
+    private void write(List<AlertRecordEntity> batch) {
+        Set<String> inserted;
+        try {
+            inserted = scamAlertRepository.insertIgnoringDuplicates(batch);
+            flushedRecords.increment(inserted.size());
+            log.debug("Flushed analytics alert records - batch: {} inserted: {}", batch.size(), inserted.size());
+        } catch (Exception e) {
+            failedRecords.increment(batch.size());
+            log.error("Failed to flush {} analytics alert records", batch.size(), e);
+            return;
+        }
+        for (AlertRecordEntity record : batch) {
+            if (!inserted.contains(record.getId())) {
+                duplicateRecords.increment();
+                mapToStored(record);
+            }
+        }
+    }
+
+    // The event already existed; usually under the same derived id, otherwise remember where it is
+    private void mapToStored(AlertRecordEntity record) {
+        try {
+            scamAlertRepository.findByUserIdAndEventId(record.getUserId(), record.getEventId())
+                               .map(AlertRecordEntity::getId)
+                               .filter(storedId -> !storedId.equals(record.getId()))
+                               .ifPresent(storedId -> {
+                                   superseded.put(record.getId(), storedId);
+                                   log.info("Analytics alert record already stored - UID: {} eventId: {} "
+                                            + "provisional alertId: {} stored alertId: {}",
+                                            record.getUserId(), record.getEventId(), record.getId(), storedId);
+                               });
+        } catch (Exception e) {
+            log.warn("Failed to look up stored alert for provisional alertId: {}", record.getId(), e);
+        }
+    }
+
+    // 12 bytes of SHA-256(userId:eventId) as an ObjectId; ids of buffered records carry no creation time
+    static String eventRecordId(String userId, String eventId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                                         .digest((userId + ":" + eventId).getBytes(StandardCharsets.UTF_8));
+            return new ObjectId(Arrays.copyOf(digest, 12)).toHexString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
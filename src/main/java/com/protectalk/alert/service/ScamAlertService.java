@@ -1,5 +1,8 @@
 package com.protectalk.alert.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.protectalk.alert.dto.ScamAlertBatchResponseDto;
 import com.protectalk.alert.dto.ScamAlertRequestDto;
 import com.protectalk.alert.dto.ScamAlertResponseDto;
 import com.protectalk.alert.model.AlertRecordEntity;
@@ -7,16 +10,35 @@ import com.protectalk.alert.model.RiskLevel;
 import com.protectalk.alert.repo.ScamAlertRepository;
 import com.protectalk.messaging.NotificationComposer;
 
-import com.protectalk.device.service.DeviceTokenService;
+import com.protectalk.device.service.InvalidTokenPruner;
+import com.protectalk.messaging.DeliveryDeferredException;
 import com.protectalk.messaging.NotificationGateway;
 import com.protectalk.messaging.NotificationResult;
-import com.protectalk.usermanagment.service.UserService;
+import com.protectalk.messaging.deliverylog.DeliveryLog;
+import com.protectalk.messaging.deliverylog.DeliveryLogEntryDto;
+import com.protectalk.usermanagment.model.ContactType;
+import com.protectalk.usermanagment.service.AlertRouteService;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 
 @Service
 public class ScamAlertService {
@@ -24,84 +46,380 @@ public class ScamAlertService {
 
     private final double               minModelScore;
     private final ScamAlertRepository  scamAlertRepository;  // persistence
-    private final DeviceTokenService   deviceTokenService;    // token resolution & cleanup
-    private final UserService          userService;
+    private final InvalidTokenPruner   invalidTokenPruner;    // background cleanup of tokens FCM rejected
+    private final AlertRouteService    alertRouteService;     // materialized recipients per user
     private final NotificationGateway  notifierGateway;        // FCM (or other) adapter
     private final NotificationComposer notificationComposer;        // builds notification payload/message
+    private final AnalyticsWriteBehindBuffer analyticsBuffer;      // below-threshold records, bulk-written later
+    private final Cache<String, String> recentEvents;               // userId:eventId -> alertId, absorbs hot retries
+    private final DeliveryMode         deliveryMode;
+    private final AlertOutbox          alertOutbox;            // pending notifications, written with the alert
+    private final DeliveryLog          deliveryLog;            // per-device push outcomes
+    private final Executor             fanoutExecutor;         // async-mode fan-out
+    private final Executor             callbackExecutor;       // send outcomes, off send pool and timeout threads
+    private final int                  maxBatchSize;
 
     public ScamAlertService(@Value("${protectalk.threshold.modelScore:0.75}") double minModelScore,
-                            ScamAlertRepository scamAlertRepository, DeviceTokenService deviceTokenService,
-                            UserService userService, NotificationGateway notifierGateway,
-                            NotificationComposer notificationComposer) {
+                            @Value("${protectalk.alerts.recent-events.max-size:10000}") long recentEventsMaxSize,
+                            @Value("${protectalk.alerts.recent-events.ttl:PT10M}") Duration recentEventsTtl,
+                            @Value("${protectalk.alerts.delivery-mode:sync}") String deliveryMode,
+                            @Qualifier("alertFanoutExecutor") Executor fanoutExecutor,
+                            @Qualifier("notificationCallbackExecutor") Executor callbackExecutor,
+                            @Value("${protectalk.alerts.batch.max-size:100}") int maxBatchSize,
+                            ScamAlertRepository scamAlertRepository, InvalidTokenPruner invalidTokenPruner,
+                            AlertRouteService alertRouteService, NotificationGateway notifierGateway,
+                            NotificationComposer notificationComposer, AnalyticsWriteBehindBuffer analyticsBuffer,
+                            AlertOutbox alertOutbox, DeliveryLog deliveryLog) {
         this.minModelScore = minModelScore; // immutable after wiring
+        this.deliveryMode = DeliveryMode.valueOf(deliveryMode.toUpperCase(Locale.ROOT));
+        this.alertOutbox = alertOutbox;
+        this.deliveryLog = deliveryLog;
+        this.fanoutExecutor = fanoutExecutor;
+        this.callbackExecutor = callbackExecutor;
+        this.maxBatchSize = maxBatchSize;
         this.scamAlertRepository = scamAlertRepository;
-        this.deviceTokenService = deviceTokenService;
-        this.userService = userService;
+        this.invalidTokenPruner = invalidTokenPruner;
+        this.alertRouteService = alertRouteService;
         this.notificationComposer = notificationComposer;
         this.notifierGateway = notifierGateway;
+        this.analyticsBuffer = analyticsBuffer;
+        this.recentEvents = Caffeine.newBuilder()
+                                    .maximumSize(recentEventsMaxSize)
+                                    .expireAfterWrite(recentEventsTtl)
+                                    .build();
     }
 
+    /**
+     * sync   = respond after the push send;
+     * async  = 202 once the alert is saved, push sent in the background;
+     * outbox = 202 once the alert is saved, push sent by {@link AlertOutboxDispatcher} in batches.
+     * In every mode the alert is written with an outbox entry, so a crash mid-send is recovered.
+     */
+    private enum DeliveryMode { SYNC, ASYNC, OUTBOX }
+
     private boolean isModelScorePassesThreshold(double score, RiskLevel level) {
         return level == RiskLevel.RED || score >= minModelScore;
     }
 
-    public ScamAlertResponseDto handle(String userId, ScamAlertRequestDto req) throws Exception {
+    public CompletableFuture<ScamAlertResponseDto> handle(String userId, ScamAlertRequestDto req) {
         log.info("Processing scam alert - UID: {} eventId: {} caller: {} risk: {} score: {}", 
                 userId, req.eventId(), req.callerNumber(), req.riskLevel(), req.modelScore());
 
-        // 0) Idempotency: if this event was already processed, short-circuit
-        var alertRecordEntity = scamAlertRepository.findByUserIdAndEventId(userId, req.eventId());
-        if (alertRecordEntity.isPresent()) {
-            log.info("Duplicate alert request ignored - UID: {} eventId: {} existing alertId: {}", 
-                    userId, req.eventId(), alertRecordEntity.get().getId());
-            return ScamAlertResponseDto.ok(alertRecordEntity.get().getId(), 0, 0, 0);
+        // 0) Idempotency fast path: a retry of an event this node just processed
+        String eventKey = userId + ":" + req.eventId();
+        String recentAlertId = recentEvents.getIfPresent(eventKey);
+        if (recentAlertId != null) {
+            recentAlertId = analyticsBuffer.resolve(recentAlertId);
+            log.info("Duplicate alert request ignored (recent) - UID: {} eventId: {} existing alertId: {}",
+                    userId, req.eventId(), recentAlertId);
+            return CompletableFuture.completedFuture(ScamAlertResponseDto.ok(recentAlertId, 0, 0, 0));
         }
 
-        // 1) Threshold check — not an error, just "not propagated"
-        if (!isModelScorePassesThreshold(req.modelScore(), req.riskLevel())) {
-            log.info("Alert below threshold - UID: {} eventId: {} score: {} level: {} threshold: {}", 
+        // 1) Below threshold — not an error, just "not propagated"; kept for analytics through the write-behind buffer
+        boolean passesThreshold = isModelScorePassesThreshold(req.modelScore(), req.riskLevel());
+        if (!passesThreshold && analyticsBuffer.isEnabled()) {
+            log.info("Alert below threshold - UID: {} eventId: {} score: {} level: {} threshold: {}",
                     userId, req.eventId(), req.modelScore(), req.riskLevel(), minModelScore);
-            
-            // Still save the record for analytics, but don't notify
-            var savedRecord = scamAlertRepository.save(AlertRecordEntity.from(userId, req));
-            return ScamAlertResponseDto.belowThreshold(savedRecord.getId());
+            String alertId = analyticsBuffer.enqueue(AlertRecordEntity.from(userId, req));
+            recentEvents.put(eventKey, alertId);
+            return CompletableFuture.completedFuture(ScamAlertResponseDto.belowThreshold(alertId));
         }
 
-        // 2) Persist the high-risk record (returns saved call record)
-        var savedAlertRecordEntity = scamAlertRepository.save(AlertRecordEntity.from(userId, req));
-        log.debug("Alert record saved - alertId: {} for UID: {} eventId: {}", 
+        // 2) Insert first - the uk_user_event unique index is the authoritative duplicate check
+        AlertRecordEntity savedAlertRecordEntity;
+        try {
+            savedAlertRecordEntity = scamAlertRepository.insert(withDispatch(AlertRecordEntity.from(userId, req),
+                                                                             passesThreshold));
+        } catch (DuplicateKeyException e) {
+            String existingId = scamAlertRepository.findByUserIdAndEventId(userId, req.eventId())
+                                                   .map(AlertRecordEntity::getId)
+                                                   .orElse(null);
+            log.info("Duplicate alert request ignored - UID: {} eventId: {} existing alertId: {}",
+                    userId, req.eventId(), existingId);
+            if (existingId != null) {
+                recentEvents.put(eventKey, existingId);
+            }
+            return CompletableFuture.completedFuture(ScamAlertResponseDto.ok(existingId, 0, 0, 0));
+        }
+        recentEvents.put(eventKey, savedAlertRecordEntity.getId());
+        log.debug("Alert record saved - alertId: {} for UID: {} eventId: {}",
                 savedAlertRecordEntity.getId(), userId, req.eventId());
 
-        // 3) Resolve targets (trusted contacts + owner if desired) -> list of FCM tokens
-        List<String> tokens = userService.getTrustedContactTokens(userId);
+        // Below threshold with write-behind disabled: saved inline, not propagated
+        if (!passesThreshold) {
+            log.info("Alert below threshold - UID: {} eventId: {} score: {} level: {} threshold: {}", 
+                    userId, req.eventId(), req.modelScore(), req.riskLevel(), minModelScore);
+            return CompletableFuture.completedFuture(ScamAlertResponseDto.belowThreshold(savedAlertRecordEntity.getId()));
+        }
+
+        // 3) Fan out - composed on the push send, or on the bounded worker pool once the record is durable
+        return fanOut(userId, List.of(savedAlertRecordEntity)).thenApply(responses -> responses.get(0));
+    }
+
+    /**
+     * Ingest alerts queued on a device while it was offline.
+     * - One unordered bulk insert; replays are filtered per item by the uk_user_event index.
+     * - Alerts above threshold are announced with a single summarized push per batch.
+     * Results are returned per item, in request order.
+     */
+    public CompletableFuture<ScamAlertBatchResponseDto> handleBatch(String userId, List<ScamAlertRequestDto> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one alert");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size " + requests.size() + " exceeds limit of " + maxBatchSize);
+        }
+        log.info("Processing scam alert batch - UID: {} size: {}", userId, requests.size());
+
+        // 0) Drop recent replays and in-batch repeats; first occurrence of an event wins
+        var results = new ScamAlertResponseDto[requests.size()];
+        Map<String, AlertRecordEntity> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            var req = requests.get(i);
+            String recentAlertId = recentEvents.getIfPresent(userId + ":" + req.eventId());
+            if (recentAlertId != null) {
+                results[i] = ScamAlertResponseDto.ok(analyticsBuffer.resolve(recentAlertId), 0, 0, 0);
+            } else {
+                candidates.putIfAbsent(userId + ":" + req.eventId(),
+                        withDispatch(AlertRecordEntity.from(userId, req),
+                                     isModelScorePassesThreshold(req.modelScore(), req.riskLevel())));
+            }
+        }
+
+        // 1) Bulk insert - whatever the unique index rejects was processed by an earlier request
+        Set<String> insertedIds = scamAlertRepository.insertIgnoringDuplicates(new ArrayList<>(candidates.values()));
+        List<String> replayedEventIds = candidates.values().stream()
+                                                  .filter(alert -> !insertedIds.contains(alert.getId()))
+                                                  .map(AlertRecordEntity::getEventId)
+                                                  .toList();
+        Map<String, String> existingIds = replayedEventIds.isEmpty() ? Map.of() :
+                scamAlertRepository.findByUserIdAndEventIdIn(userId, replayedEventIds).stream()
+                                   .collect(Collectors.toMap(AlertRecordEntity::getEventId, AlertRecordEntity::getId,
+                                                             (a, b) -> a));
+
+        // 2) Classify each item: duplicate, below threshold, or to be announced
+        int duplicates = 0;
+        Set<String> claimed = new HashSet<>();
+        List<AlertRecordEntity> toNotify = new ArrayList<>();
+        List<Integer> toNotifyIndexes = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (results[i] != null) {
+                duplicates++;
+                continue;
+            }
+            var req = requests.get(i);
+            String eventKey = userId + ":" + req.eventId();
+            var alert = candidates.get(eventKey);
+            if (!insertedIds.contains(alert.getId()) || !claimed.add(eventKey)) {
+                String existingId = insertedIds.contains(alert.getId()) ? alert.getId() : existingIds.get(req.eventId());
+                if (existingId != null) {
+                    recentEvents.put(eventKey, existingId);
+                }
+                results[i] = ScamAlertResponseDto.ok(existingId, 0, 0, 0);
+                duplicates++;
+                continue;
+            }
+            recentEvents.put(eventKey, alert.getId());
+            if (!isModelScorePassesThreshold(req.modelScore(), req.riskLevel())) {
+                results[i] = ScamAlertResponseDto.belowThreshold(alert.getId());
+            } else {
+                toNotify.add(alert);
+                toNotifyIndexes.add(i);
+            }
+        }
+
+        // 3) One coalesced fan-out for the whole batch
+        int duplicateCount = duplicates;
+        var fanOut = toNotify.isEmpty() ? CompletableFuture.completedFuture(List.<ScamAlertResponseDto>of())
+                                        : fanOut(userId, toNotify);
+        return fanOut.thenApply(notified -> {
+            for (int j = 0; j < notified.size(); j++) {
+                results[toNotifyIndexes.get(j)] = notified.get(j);
+            }
+            log.info("Scam alert batch processed - UID: {} size: {} inserted: {} duplicates: {} notified alerts: {}",
+                    userId, requests.size(), insertedIds.size(), duplicateCount, toNotify.size());
+            return new ScamAlertBatchResponseDto(requests.size(), duplicateCount, List.of(results));
+        });
+    }
+
+    /**
+     * Delivery outcome of an alert owned by {@code userId}; empty if the alert does not exist or is not theirs.
+     * Provisional ids of below-threshold alerts resolve too, while buffered and after they were superseded.
+     */
+    public Optional<ScamAlertResponseDto> getDeliveryStatus(String userId, String callId) {
+        return scamAlertRepository.findById(analyticsBuffer.resolve(callId))
+                                  .or(() -> analyticsBuffer.findBuffered(callId))
+                                  .filter(alert -> userId.equals(alert.getUserId()))
+                                  .map(alert -> {
+                                      if (alert.getDelivery() != null) {
+                                          return alert.getDelivery().toResponse(alert.getId());
+                                      }
+                                      if (!isModelScorePassesThreshold(alert.getModelScore(), alert.getRiskLevel())) {
+                                          return ScamAlertResponseDto.belowThreshold(alert.getId());
+                                      }
+                                      return ScamAlertResponseDto.pending(alert.getId());
+                                  });
+    }
+
+    /**
+     * Per-device push history of one of the user's alerts, newest first; empty if the alert is not theirs.
+     */
+    public Optional<List<DeliveryLogEntryDto>> getDeliveryLog(String userId, String callId, int limit) {
+        return scamAlertRepository.findById(analyticsBuffer.resolve(callId))
+                                  .or(() -> analyticsBuffer.findBuffered(callId))
+                                  .filter(alert -> userId.equals(alert.getUserId()))
+                                  .map(alert -> deliveryLog.forAlert(alert.getId(), limit).stream()
+                                                           .map(DeliveryLogEntryDto::from)
+                                                           .toList());
+    }
+
+    /**
+     * Deliver alerts the outbox dispatcher claimed for this user; the outcome is recorded as for inline sends.
+     */
+    public CompletableFuture<Void> dispatch(String userId, List<AlertRecordEntity> alerts) {
+        return deliverAndRecord(userId, alerts).thenAccept(responses -> { });
+    }
+
+    // Alerts to announce carry their outbox entry from the first write
+    private AlertRecordEntity withDispatch(AlertRecordEntity alert, boolean passesThreshold) {
+        if (passesThreshold) {
+            alert.setDispatch(deliveryMode == DeliveryMode.OUTBOX ? alertOutbox.queued() : alertOutbox.claimedInline());
+        }
+        return alert;
+    }
+
+    // Returns one response per alert, in order (all pending in async and outbox modes)
+    private CompletableFuture<List<ScamAlertResponseDto>> fanOut(String userId, List<AlertRecordEntity> alerts) {
+        if (deliveryMode == DeliveryMode.OUTBOX) {
+            log.info("Alert queued in outbox - UID: {} alertId: {} alerts: {}",
+                    userId, alerts.get(0).getId(), alerts.size());
+            return CompletableFuture.completedFuture(
+                    alerts.stream().map(alert -> ScamAlertResponseDto.pending(alert.getId())).toList());
+        }
+        if (deliveryMode == DeliveryMode.ASYNC) {
+            try {
+                fanoutExecutor.execute(() -> deliverAndRecord(userId, alerts).exceptionally(error -> {
+                    log.error("Async alert delivery failed - UID: {} alertId: {}", userId, alerts.get(0).getId(), error);
+                    return null;
+                }));
+            } catch (RejectedExecutionException e) {
+                // fan-out pool full: nothing was sent, the outbox dispatcher delivers it instead of the request thread
+                log.warn("Fan-out pool saturated, alert handed to the outbox - UID: {} alertId: {}",
+                        userId, alerts.get(0).getId());
+                try {
+                    alertOutbox.defer(alerts, null);
+                } catch (Exception deferError) {
+                    log.error("Failed to defer outbox entries - alertId: {}", alerts.get(0).getId(), deferError);
+                }
+            }
+            log.info("Alert accepted for async delivery - UID: {} alertId: {} alerts: {}",
+                    userId, alerts.get(0).getId(), alerts.size());
+            return CompletableFuture.completedFuture(
+                    alerts.stream().map(alert -> ScamAlertResponseDto.pending(alert.getId())).toList());
+        }
+        return deliverAndRecord(userId, alerts);
+    }
+
+    // A failed send stays in the outbox for another attempt (reported as pending) until its attempts run out;
+    // a send deferred by the provider circuit goes back to the outbox without using an attempt
+    private CompletableFuture<List<ScamAlertResponseDto>> deliverAndRecord(String userId, List<AlertRecordEntity> alerts) {
+        CompletableFuture<ScamAlertResponseDto> delivery;
+        try {
+            delivery = deliver(userId, alerts);
+        } catch (Exception e) {
+            delivery = CompletableFuture.failedFuture(e);
+        }
+        String firstId = alerts.get(0).getId();
+        // outcome writes run on the callback pool, whichever thread completed the send (send pool, timeout delayer).
+        // If that pool rejects them, the outcome is not recorded and the outbox resends once the inline lease expires.
+        return delivery.handleAsync((response, error) -> {
+                           if (error == null) {
+                               recordDelivery(alerts, response);
+                               return response;
+                           }
+                           Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                             ? error.getCause() : error;
+                           if (cause instanceof DeliveryDeferredException deferred) {
+                               return defer(userId, alerts, deferred);
+                           }
+                           if (alertOutbox.retryLater(alerts)) {
+                               log.warn("Alert delivery failed, kept in outbox for retry - UID: {} alertId: {}",
+                                       userId, firstId, error);
+                               return ScamAlertResponseDto.pending(firstId);
+                           }
+                           log.error("Alert delivery failed, attempts exhausted - UID: {} alertId: {}",
+                                   userId, firstId, error);
+                           var failed = ScamAlertResponseDto.deliveryFailed(firstId, 0, 0);
+                           recordDelivery(alerts, failed);
+                           return failed;
+                       }, callbackExecutor)
+                       .thenApply(outcome -> alerts.stream().map(alert -> outcome.withCallId(alert.getId())).toList());
+    }
+
+    private ScamAlertResponseDto defer(String userId, List<AlertRecordEntity> alerts, DeliveryDeferredException deferred) {
+        String firstId = alerts.get(0).getId();
+        try {
+            alertOutbox.defer(alerts, deferred.getRetryAfter());
+        } catch (Exception e) {
+            // the inline lease still runs out and the dispatcher picks the alert up
+            log.error("Failed to defer outbox entries - alertId: {}", firstId, e);
+        }
+        log.warn("Alert delivery deferred, notification provider unavailable - UID: {} alertId: {} retryAfter: {}",
+                userId, firstId, deferred.getRetryAfter());
+        return ScamAlertResponseDto.deferred(firstId);
+    }
+
+    private void recordDelivery(List<AlertRecordEntity> alerts, ScamAlertResponseDto response) {
+        try {
+            scamAlertRepository.updateDelivery(alerts.stream().map(AlertRecordEntity::getId).toList(),
+                                               AlertRecordEntity.DeliveryOutcome.from(response));
+        } catch (Exception e) {
+            log.error("Failed to record delivery outcome - alertId: {} reason: {}",
+                      alerts.get(0).getId(), response.reason(), e);
+        }
+    }
+
+    // Sends one push for the given alerts (a summary when there are several); response is keyed to the first alert.
+    // The provider response is handled on the callback pool, never on the send pool's threads.
+    private CompletableFuture<ScamAlertResponseDto> deliver(String userId, List<AlertRecordEntity> alerts) {
+        var savedAlertRecordEntity = alerts.get(0);
+
+        // 4) Resolve targets (trusted contacts + owner if desired) -> one read of the routing table
+        var route = alertRouteService.getRoute(userId);
+        List<String> tokens = route.tokensFor(ContactType.TRUSTED_CONTACT);
         if (tokens == null || tokens.isEmpty()) {
             log.warn("No trusted contacts found for notifications - UID: {} alertId: {}", 
                     userId, savedAlertRecordEntity.getId());
-            return ScamAlertResponseDto.noContacts(savedAlertRecordEntity.getId());
+            return CompletableFuture.completedFuture(ScamAlertResponseDto.noContacts(savedAlertRecordEntity.getId()));
         }
 
-        log.info("Sending alert notifications - UID: {} alertId: {} recipients: {}", 
-                userId, savedAlertRecordEntity.getId(), tokens.size());
+        log.info("Sending alert notifications - UID: {} alertId: {} alerts: {} recipients: {}", 
+                userId, savedAlertRecordEntity.getId(), alerts.size(), tokens.size());
 
-        // 4) Compose + send
-        var message = notificationComposer.compose(savedAlertRecordEntity, tokens);
-        var result = notifierGateway.send(message);
+        // 5) Compose + send - one topic send when the protegee's alert topic is in sync, per token otherwise
+        var message = notificationComposer.composeSummary(alerts, tokens, route.tokenPlatforms());
+        String topic = alertRouteService.getAlertTopic(route);
+        var send = topic != null ? notifierGateway.sendToTopicAsync(topic, message) : notifierGateway.sendAsync(message);
+        return send.thenApplyAsync(result -> toResponse(userId, savedAlertRecordEntity, result), callbackExecutor);
+    }
 
+    private ScamAlertResponseDto toResponse(String userId, AlertRecordEntity savedAlertRecordEntity,
+                                            NotificationResult result) {
         // Prefer success/total from provider (authoritative)
         int recipients   = result.total();
         int delivered    = result.success();
         var invalids     = result.invalidTokens() == null ? List.<String>of() : result.invalidTokens();
         int invalidCount = invalids.size();
 
-        logMessageResult(req, recipients, result, delivered, savedAlertRecordEntity, invalidCount);
+        logMessageResult(recipients, result, delivered, savedAlertRecordEntity, invalidCount);
 
-        // 5) Cleanup invalid tokens reported by the provider
+        // 6) Cleanup invalid tokens reported by the provider - queued, deleted in bulk off the response path
         if (!invalids.isEmpty()) {
-            log.info("Cleaning up {} invalid FCM tokens for UID: {}", invalidCount, userId);
-            invalids.forEach(deviceTokenService::deleteToken);
+            log.info("Queueing {} invalid FCM tokens for cleanup - UID: {}", invalidCount, userId);
+            invalidTokenPruner.enqueue(invalids);
         }
 
-        // 6) Build accurate response
+        // 7) Build accurate response
         if (delivered == 0 && invalidCount > 0) {
             log.warn("Alert delivery completely failed due to invalid tokens - UID: {} alertId: {} invalid: {}", 
                     userId, savedAlertRecordEntity.getId(), invalidCount);
@@ -118,7 +436,7 @@ public class ScamAlertService {
         return ScamAlertResponseDto.ok(savedAlertRecordEntity.getId(), recipients, delivered, invalidCount);
     }
 
-    private static void logMessageResult(ScamAlertRequestDto req, int recipients, NotificationResult result, int delivered,
+    private static void logMessageResult(int recipients, NotificationResult result, int delivered,
                                   AlertRecordEntity savedAlertRecordEntity, int invalidCount) {
         // build a compact reference (single → real id, multi → "batch:S/T")
         String sendRef = (recipients == 1 && !result.deliveries().isEmpty()) ? result.deliveries().get(0).messageId() :
@@ -126,6 +444,6 @@ public class ScamAlertService {
 
         // --- LOGS (replace the repository attach step with these) ---
         log.info("ALERT_DELIVERY summary alertId={} eventId={} recipients={} delivered={} invalid={} ref={}",
-                 savedAlertRecordEntity.getId(), req.eventId(), recipients, delivered, invalidCount, sendRef);
+                 savedAlertRecordEntity.getId(), savedAlertRecordEntity.getEventId(), recipients, delivered, invalidCount, sendRef);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,68 @@
+package com.protectalk.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+
+/**
+ * Bounded worker pools for work that should not hold HTTP request threads.
+ */
+@Slf4j
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Alert fan-out (recipient resolution + push send) when protectalk.alerts.delivery-mode=async, and alert
+     * topic syncs. When the queue is full the task is rejected: an async alert is handed to the outbox instead,
+     * a topic sync is retried by the route verify pass.
+     */
+    @Bean(name = "alertFanoutExecutor")
+    public ThreadPoolTaskExecutor alertFanoutExecutor(@Value("${protectalk.alerts.fanout.pool-size:8}") int poolSize,
+                                                      @Value("${protectalk.alerts.fanout.queue-capacity:1000}") int queueCapacity,
+                                                      MeterRegistry meterRegistry) {
+        return boundedExecutor("alertFanoutExecutor", "alert-fanout-", poolSize, queueCapacity, meterRegistry);
+    }
+
+    /**
+     * Handling of push send outcomes (result merge, outcome record, token cleanup), so it never runs on send pool,
+     * timeout or request threads. When the queue is full the callback is rejected and its send future fails with
+     * RejectedExecutionException; an alert whose outcome was not recorded is picked up again by the outbox once its
+     * inline lease runs out.
+     */
+    @Bean(name = "notificationCallbackExecutor")
+    public ThreadPoolTaskExecutor notificationCallbackExecutor(
+            @Value("${protectalk.notifications.callbacks.pool-size:8}") int poolSize,
+            @Value("${protectalk.notifications.callbacks.queue-capacity:10000}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        return boundedExecutor("notificationCallbackExecutor", "notification-callback-", poolSize, queueCapacity, meterRegistry);
+    }
+
+    // Fixed pool with a bounded queue; overflow is rejected, logged and counted as executor.rejected{name=<bean>}
+    // next to the executor.* metrics Boot exports for the bean
+    private static ThreadPoolTaskExecutor boundedExecutor(String name, String threadNamePrefix, int poolSize,
+                                                          int queueCapacity, MeterRegistry meterRegistry) {
+        Counter rejected = meterRegistry.counter("executor.rejected", "name", name);
+        RejectedExecutionHandler reject = (task, executor) -> {
+            rejected.increment();
+            log.warn("Executor {} saturated - active: {} queued: {}, task rejected",
+                     name, executor.getActiveCount(), executor.getQueue().size());
+            throw new RejectedExecutionException("Executor " + name + " saturated");
+        };
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setRejectedExecutionHandler(reject);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -1,10 +1,15 @@
 package com.protectalk.config;
 
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.auth.oauth2.AccessToken;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.messaging.FirebaseMessaging;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,22 +17,70 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @Slf4j
 public class FirebaseConfig {
 
+    private static final String FCM_HOST = "fcm.googleapis.com";
+
     @Value("${firebase.service-account.path}")
     private String firebaseServiceAccountPath;
 
+    // Base URL of a local FCM stand-in (profile local-fcm); empty = real Firebase
+    @Value("${protectalk.fcm.local.base-url:}")
+    private String localFcmBaseUrl;
+
+    @Value("${protectalk.fcm.local.project-id:protectalk-local}")
+    private String localFcmProjectId;
+
+    // HTTP transport of the Admin SDK (FCM, Auth, OAuth token refresh)
+    @Value("${protectalk.firebase.http.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${protectalk.firebase.http.max-connections-per-route:100}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${protectalk.firebase.http.connect-timeout:PT5S}")
+    private Duration connectTimeout;
+
+    @Value("${protectalk.firebase.http.read-timeout:PT10S}")
+    private Duration readTimeout;
+
+    @Value("${protectalk.firebase.http.pool-timeout:PT5S}")
+    private Duration poolTimeout;
+
+    @Value("${protectalk.firebase.http.idle-timeout:PT30S}")
+    private Duration idleTimeout;
+
+    @Value("${protectalk.firebase.http.connection-ttl:PT5M}")
+    private Duration connectionTtl;
+
+    // Threads for the SDK's async calls (topic management; one blocking HTTP call each)
+    @Value("${protectalk.firebase.threads:16}")
+    private int threads;
+
     @Bean
-    public FirebaseApp firebaseApp() throws Exception {
+    public FirebaseApp firebaseApp(MeterRegistry meterRegistry) throws Exception {
+        if (!localFcmBaseUrl.isBlank()) {
+            return localFcmApp(meterRegistry);
+        }
         log.info("Initializing Firebase app with service account from: {}", firebaseServiceAccountPath);
         
         try (InputStream serviceAccount = new FileInputStream(firebaseServiceAccountPath)) {
-            GoogleCredentials credentials = GoogleCredentials.fromStream(serviceAccount);
+            HttpTransport transport = httpTransport(meterRegistry, Map.of());
+            GoogleCredentials credentials = GoogleCredentials.fromStream(serviceAccount, () -> transport);
             FirebaseOptions options = FirebaseOptions.builder()
                     .setCredentials(credentials)
+                    .setHttpTransport(transport)
+                    .setThreadManager(new FirebaseThreadManager(threads, meterRegistry))
+                    .setConnectTimeout((int) connectTimeout.toMillis())
+                    .setReadTimeout((int) readTimeout.toMillis())
                     .build();
             
             FirebaseApp app = FirebaseApp.getApps().isEmpty() 
@@ -42,6 +95,47 @@ public class FirebaseConfig {
         }
     }
 
+    /**
+     * App whose FCM sends go to {@code localFcmBaseUrl} instead of fcm.googleapis.com. The SDK has no endpoint
+     * override, so the transport rewrites the host; a fixed access token avoids any call to Google OAuth.
+     * Firebase Auth is not redirected.
+     */
+    private FirebaseApp localFcmApp(MeterRegistry meterRegistry) {
+        log.warn("Firebase messaging redirected to local FCM stand-in: {}", localFcmBaseUrl);
+        FirebaseOptions options = FirebaseOptions.builder()
+                .setCredentials(GoogleCredentials.create(new AccessToken("local-fcm", new Date(Long.MAX_VALUE))))
+                .setProjectId(localFcmProjectId)
+                .setHttpTransport(httpTransport(meterRegistry, Map.of(FCM_HOST, URI.create(localFcmBaseUrl))))
+                .setThreadManager(new FirebaseThreadManager(threads, meterRegistry))
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setReadTimeout((int) readTimeout.toMillis())
+                .build();
+        return FirebaseApp.getApps().isEmpty() ? FirebaseApp.initializeApp(options) : FirebaseApp.getInstance();
+    }
+
+    /**
+     * Pooled keep-alive transport: at most {@code max-connections-per-route} connections to one Google host,
+     * idle ones closed after {@code idle-timeout}, every one recycled after {@code connection-ttl} so load
+     * spreads over Google front ends. Requests and pool usage are exported as firebase.http.* metrics.
+     */
+    private HttpTransport httpTransport(MeterRegistry meterRegistry, Map<String, URI> hostOverrides) {
+        var connectionManager = new PoolingHttpClientConnectionManager(connectionTtl.toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        var client = ApacheHttpTransport.newDefaultHttpClientBuilder()
+                                        .setConnectionManager(connectionManager)
+                                        .evictIdleConnections(idleTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                                        .build();
+
+        meterRegistry.gauge("firebase.http.pool.leased", connectionManager, cm -> cm.getTotalStats().getLeased());
+        meterRegistry.gauge("firebase.http.pool.available", connectionManager, cm -> cm.getTotalStats().getAvailable());
+        meterRegistry.gauge("firebase.http.pool.pending", connectionManager, cm -> cm.getTotalStats().getPending());
+        log.info("Firebase HTTP transport - max connections: {} per route: {} connect timeout: {} read timeout: {}",
+                 maxConnections, maxConnectionsPerRoute, connectTimeout, readTimeout);
+        return new ApacheHttpTransport(new InstrumentedHttpClient(client, meterRegistry, (int) poolTimeout.toMillis(),
+                                                                  hostOverrides));
+    }
+
     @Bean
     public FirebaseAuth firebaseAuth(FirebaseApp app) {
         return FirebaseAuth.getInstance(app);
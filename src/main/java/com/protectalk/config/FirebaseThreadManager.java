@@ -0,0 +1,56 @@
+package com.protectalk.config;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.ThreadManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-size pool for the Admin SDK's async calls (the SDK default is an unbounded cached pool, one thread
+ * per in-flight request).
+ * - Serves topic management and any other *Async SDK call; message sends run on the priority-ordered
+ *   {@code FcmSendPool} instead, since this pool's queue is FIFO.
+ * - Only non-nesting operations may be used (topic management): sendEach / sendEachForMulticast block a
+ *   pool thread on sub-tasks queued on the same pool and could deadlock it.
+ * - Exported as {@code executor.*{name=firebase}}.
+ */
+class FirebaseThreadManager extends ThreadManager {
+
+    private final int           threads;
+    private final MeterRegistry meterRegistry;
+
+    FirebaseThreadManager(int threads, MeterRegistry meterRegistry) {
+        this.threads = Math.max(1, threads);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected ExecutorService getExecutor(FirebaseApp app) {
+        var executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                              getThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(executor, "firebase", Tags.empty()).bindTo(meterRegistry);
+        return executor;
+    }
+
+    @Override
+    protected void releaseExecutor(FirebaseApp app, ExecutorService executor) {
+        executor.shutdownNow();
+    }
+
+    @Override
+    protected ThreadFactory getThreadFactory() {
+        // daemon, like the SDK's own threads, so they never hold up shutdown
+        var factory = new CustomizableThreadFactory("firebase-");
+        factory.setDaemon(true);
+        return factory;
+    }
+}
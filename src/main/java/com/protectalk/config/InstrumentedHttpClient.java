@@ -0,0 +1,126 @@
+package com.protectalk.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HttpClient under the Firebase Admin SDK transport (FCM, Auth, OAuth token refresh).
+ * - Times every exchange up to the response headers as {@code firebase.http.requests}, tagged with host,
+ *   operation (the method after ':' in the path, e.g. send / batchAdd / lookup, else the first segment),
+ *   HTTP method and status, or IO_ERROR when no response came back.
+ * - Bounds the wait for a pooled connection ({@code poolTimeoutMillis}); the SDK's per-request config
+ *   would otherwise wait forever.
+ * - Sends requests for hosts in {@code hostOverrides} to another base URL (local FCM stand-in).
+ */
+@SuppressWarnings("deprecation")
+class InstrumentedHttpClient extends CloseableHttpClient {
+
+    private final CloseableHttpClient delegate;
+    private final MeterRegistry       meterRegistry;
+    private final int                 poolTimeoutMillis;
+    private final Map<String, URI>    hostOverrides;
+
+    InstrumentedHttpClient(CloseableHttpClient delegate, MeterRegistry meterRegistry, int poolTimeoutMillis,
+                           Map<String, URI> hostOverrides) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.poolTimeoutMillis = poolTimeoutMillis;
+        this.hostOverrides = hostOverrides;
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+            throws IOException, ClientProtocolException {
+        String host = target == null ? "unknown" : target.getHostName();
+        String method = request.getRequestLine().getMethod();
+        String operation = operationOf(request.getRequestLine().getUri());
+
+        if (request instanceof HttpRequestBase base) {
+            RequestConfig config = base.getConfig() == null ? RequestConfig.DEFAULT : base.getConfig();
+            base.setConfig(RequestConfig.copy(config).setConnectionRequestTimeout(poolTimeoutMillis).build());
+            URI override = hostOverrides.get(host);
+            if (override != null) {
+                target = redirect(base, override);
+            }
+        }
+
+        long started = System.nanoTime();
+        String status = "IO_ERROR";
+        try {
+            CloseableHttpResponse response = delegate.execute(target, request, context);
+            status = String.valueOf(response.getStatusLine().getStatusCode());
+            return response;
+        } finally {
+            Timer.builder("firebase.http.requests")
+                 .tag("host", host)
+                 .tag("operation", operation)
+                 .tag("method", method)
+                 .tag("status", status)
+                 .publishPercentiles(0.5, 0.99)
+                 .register(meterRegistry)
+                 .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+
+    private static HttpHost redirect(HttpRequestBase request, URI base) throws IOException {
+        URI uri = request.getURI();
+        try {
+            request.setURI(new URI(base.getScheme(), null, base.getHost(), base.getPort(),
+                                   uri.getPath(), uri.getQuery(), null));
+        } catch (URISyntaxException e) {
+            throw new IOException("Cannot redirect " + uri + " to " + base, e);
+        }
+        return new HttpHost(base.getHost(), base.getPort(), base.getScheme());
+    }
+
+    // "/v1/projects/p/messages:send" -> "send", "/iid/v1:batchAdd" -> "batchAdd", "/token" -> "token"
+    static String operationOf(String uri) {
+        String path;
+        try {
+            path = new URI(uri).getRawPath();
+        } catch (URISyntaxException e) {
+            return "other";
+        }
+        if (path == null || path.isEmpty() || "/".equals(path)) {
+            return "root";
+        }
+        int colon = path.lastIndexOf(':');
+        if (colon >= 0 && colon > path.lastIndexOf('/')) {
+            return path.substring(colon + 1);
+        }
+        String trimmed = path.startsWith("/") ? path.substring(1) : path;
+        int slash = trimmed.indexOf('/');
+        return slash < 0 ? trimmed : trimmed.substring(0, slash);
+    }
+}
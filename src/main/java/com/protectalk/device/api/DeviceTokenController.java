@@ -2,6 +2,7 @@ package com.protectalk.device.api;
 
 import com.protectalk.device.dto.DeviceTokenRequestDto;
 import com.protectalk.device.service.DeviceTokenService;
+import com.protectalk.messaging.deliverylog.DeliveryLogEntryDto;
 import com.protectalk.security.model.FirebasePrincipal;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -9,13 +10,20 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
 @Slf4j
 @RestController
 @RequestMapping("/api/device-tokens")
 @RequiredArgsConstructor
 public class DeviceTokenController {
+    private static final Duration DEFAULT_DELIVERY_LOG_WINDOW = Duration.ofDays(7);
+
     private final DeviceTokenService deviceTokenService;
 
     @PostMapping("/register")
@@ -35,4 +43,17 @@ public class DeviceTokenController {
                     .body("Error: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{deviceId}/delivery-log")
+    public ResponseEntity<List<DeliveryLogEntryDto>> deliveryLog(@AuthenticationPrincipal FirebasePrincipal me,
+                                                                 @PathVariable String deviceId,
+                                                                 @RequestParam(required = false)
+                                                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since,
+                                                                 @RequestParam(defaultValue = "100") int limit) {
+        log.debug("Delivery log requested by UID: {} for device: {}", me.uid(), deviceId);
+        Instant from = since != null ? since : Instant.now().minus(DEFAULT_DELIVERY_LOG_WINDOW);
+        return deviceTokenService.getDeliveryLog(me.uid(), deviceId, from, limit)
+                                 .map(ResponseEntity::ok)
+                                 .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
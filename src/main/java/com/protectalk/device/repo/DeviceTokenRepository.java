@@ -3,6 +3,7 @@ package com.protectalk.device.repo;
 import com.protectalk.device.model.DeviceTokenEntity;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,5 +12,6 @@ public interface DeviceTokenRepository extends MongoRepository<DeviceTokenEntity
     Optional<DeviceTokenEntity> findByUserIdAndDeviceId(String userId, String deviceId);
     Optional<DeviceTokenEntity> findByFcmToken(String fcmToken);
     void deleteByFcmToken(String fcmToken);
+    long deleteByFcmTokenIn(Collection<String> fcmTokens); // one deleteMany with $in
     void deleteByUserIdAndDeviceId(String userId, String deviceId);
 }
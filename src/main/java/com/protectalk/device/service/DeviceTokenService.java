@@ -3,12 +3,18 @@ package com.protectalk.device.service;
 import com.protectalk.device.dto.DeviceTokenRequestDto;
 import com.protectalk.device.model.DeviceTokenEntity;
 import com.protectalk.device.repo.DeviceTokenRepository;
+import com.protectalk.messaging.deliverylog.DeliveryLog;
+import com.protectalk.messaging.deliverylog.DeliveryLogEntryDto;
+import com.protectalk.usermanagment.service.AlertRouteService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -16,6 +22,8 @@ import java.util.List;
 public class DeviceTokenService {
 
     private final DeviceTokenRepository repo;
+    private final AlertRouteService     alertRouteService;
+    private final DeliveryLog           deliveryLog;
 
     /**
      * Save or update the FCM token for a given user & device using DTO.
@@ -41,10 +49,16 @@ public class DeviceTokenService {
      * - If id is provided, update by id (or insert if missing).
      * - Else, match by (userId, deviceId) and update; if not found, insert.
      * Handles rare duplicate-key races by re-reading and updating.
+     * Routes of users who have this user as a contact are refreshed afterwards.
      */
     public void register(DeviceTokenEntity input) {
         if (input == null) throw new IllegalArgumentException("device token entity is required");
 
+        upsert(input);
+        alertRouteService.refreshRoutesContaining(input.getUserId());
+    }
+
+    private void upsert(DeviceTokenEntity input) {
         log.debug("Registering device token entity for UID: {} with deviceId: {}", input.getUserId(), input.getDeviceId());
 
         // 1) If _id is known, prefer update-by-id
@@ -101,11 +115,34 @@ public class DeviceTokenService {
                    .toList();
     }
 
+    /**
+     * Pushes sent to one of the user's devices since the given time, newest first; empty if the device is unknown.
+     */
+    public Optional<List<DeliveryLogEntryDto>> getDeliveryLog(String userId, String deviceId, Instant since, int limit) {
+        return repo.findByUserIdAndDeviceId(userId, deviceId)
+                   .map(device -> deliveryLog.forToken(device.getFcmToken(), since, limit).stream()
+                                             .map(DeliveryLogEntryDto::from)
+                                             .toList());
+    }
+
     /**
      * Delete an invalid/expired token (after FCM says UNREGISTERED / INVALID_ARGUMENT).
      */
     public void deleteToken(String fcmToken) {
-        repo.deleteByFcmToken(fcmToken);
+        deleteTokens(List.of(fcmToken));
+    }
+
+    /**
+     * Delete a set of invalid tokens with one deleteMany, then drop them from the alert routes.
+     * @return the number of device token documents removed
+     */
+    public long deleteTokens(Collection<String> fcmTokens) {
+        if (fcmTokens == null || fcmTokens.isEmpty()) {
+            return 0;
+        }
+        long deleted = repo.deleteByFcmTokenIn(fcmTokens);
+        alertRouteService.removeTokens(fcmTokens);
+        return deleted;
     }
 
     // --- helpers ---
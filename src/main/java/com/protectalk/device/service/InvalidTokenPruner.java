@@ -0,0 +1,100 @@
+package com.protectalk.device.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background queue for tokens the provider reported as invalid (UNREGISTERED / INVALID_ARGUMENT).
+ * - Senders enqueue and return; tokens from all requests are deleted together with one deleteMany.
+ * - A flush runs when {@code batch-size} tokens are waiting or every {@code flush-interval}.
+ * - When the queue is full further tokens are dropped. Pruning is best effort: a token that is still
+ *   registered is reported again on its next send.
+ */
+@Slf4j
+@Component
+public class InvalidTokenPruner {
+
+    private final DeviceTokenService    deviceTokenService;
+    private final TaskScheduler         taskScheduler;
+    private final int                   batchSize;
+    private final BlockingQueue<String> queue;
+    private final AtomicBoolean         flushScheduled = new AtomicBoolean();
+    private final Counter               prunedTokens;
+    private final Counter               droppedTokens;
+
+    public InvalidTokenPruner(DeviceTokenService deviceTokenService, TaskScheduler taskScheduler,
+                              @Value("${protectalk.fcm.token-pruning.capacity:10000}") int capacity,
+                              @Value("${protectalk.fcm.token-pruning.batch-size:500}") int batchSize,
+                              @Value("${protectalk.fcm.token-pruning.flush-interval:PT1S}") Duration flushInterval,
+                              MeterRegistry meterRegistry) {
+        this.deviceTokenService = deviceTokenService;
+        this.taskScheduler = taskScheduler;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.prunedTokens = meterRegistry.counter("fcm.tokens.pruned");
+        this.droppedTokens = meterRegistry.counter("fcm.tokens.prune_dropped");
+        meterRegistry.gauge("fcm.tokens.prune_queued", queue, BlockingQueue::size);
+
+        taskScheduler.scheduleWithFixedDelay(this::flush, flushInterval);
+    }
+
+    public void enqueue(Collection<String> fcmTokens) {
+        if (fcmTokens == null || fcmTokens.isEmpty()) {
+            return;
+        }
+        int dropped = 0;
+        for (String fcmToken : fcmTokens) {
+            if (fcmToken != null && !queue.offer(fcmToken)) {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            droppedTokens.increment(dropped);
+            log.warn("Invalid token prune queue full ({}), dropped {} tokens", queue.size(), dropped);
+        }
+        if (queue.size() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::flush, Instant.now());
+        }
+    }
+
+    public void flush() {
+        flushScheduled.set(false);
+        List<String> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            prune(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void prune(List<String> batch) {
+        // The same stale token often arrives from several concurrent sends
+        var tokens = new LinkedHashSet<>(batch);
+        try {
+            long deleted = deviceTokenService.deleteTokens(tokens);
+            prunedTokens.increment(deleted);
+            log.info("Pruned invalid FCM tokens - queued: {} distinct: {} deleted: {}", batch.size(), tokens.size(), deleted);
+        } catch (Exception e) {
+            log.error("Failed to prune {} invalid FCM tokens", tokens.size(), e);
+        }
+    }
+}
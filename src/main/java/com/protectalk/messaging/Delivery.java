@@ -5,5 +5,6 @@ public record Delivery(
     boolean success,
     String messageId,
     String errorCode,
-    String errorMessage
+    String errorMessage,
+    int attempts          // sends made for this token, including retries
 ) {}
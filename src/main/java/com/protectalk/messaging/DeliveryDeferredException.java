@@ -0,0 +1,22 @@
+package com.protectalk.messaging;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * The provider is considered unavailable (circuit open); nothing was sent.
+ * {@code retryAfter} is the earliest time worth trying again.
+ */
+@Getter
+public class DeliveryDeferredException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public DeliveryDeferredException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -1,29 +1,137 @@
 package com.protectalk.messaging;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.protectalk.alert.model.AlertRecordEntity;
+import com.protectalk.alert.model.RiskLevel;
+import com.protectalk.device.model.Platform;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 import static com.protectalk.alert.model.RiskLevel.YELLOW;
 
+/**
+ * Builds alert pushes. Title, body and data of an alert never change once it is stored, so they are encoded
+ * once (within the {@link PayloadEncoder} budget) and cached per alert id for retries and outbox replays;
+ * the full analysis stays on the server and the app fetches it by callId.
+ */
 @Component
 public class NotificationComposer {
-    public OutboundMessage compose(AlertRecordEntity saved, List<String> tokens) {
-        String title = switch (saved.getRiskLevel()) {
+
+    // Immutable part of a push for one alert or a set of alerts
+    private record Content(String title, String body, PayloadEncoder.Payload payload, String collapseKey,
+                           String tag, NotificationPriority priority, List<String> alertIds) {}
+
+    private final PayloadEncoder         payloadEncoder;
+    private final Cache<String, Content> contents;
+
+    public NotificationComposer(PayloadEncoder payloadEncoder,
+                                @Value("${protectalk.notifications.payload.cache.max-size:10000}") long cacheMaxSize,
+                                @Value("${protectalk.notifications.payload.cache.ttl:PT10M}") Duration cacheTtl) {
+        this.payloadEncoder = payloadEncoder;
+        this.contents = Caffeine.newBuilder()
+                                .maximumSize(cacheMaxSize)
+                                .expireAfterAccess(cacheTtl)
+                                .build();
+    }
+
+    public OutboundMessage compose(AlertRecordEntity saved, List<String> tokens, Map<String, Platform> platforms) {
+        return toMessage(saved.getId() == null ? contentOf(saved) : contents.get(saved.getId(), id -> contentOf(saved)),
+                         tokens, platforms);
+    }
+
+    /**
+     * One summarized push for several alerts (e.g. a batch replayed by a device that was offline).
+     * Title follows the highest risk; the device fetches the individual alerts by callIds.
+     */
+    public OutboundMessage composeSummary(List<AlertRecordEntity> alerts, List<String> tokens,
+                                          Map<String, Platform> platforms) {
+        if (alerts.size() == 1) {
+            return compose(alerts.get(0), tokens, platforms);
+        }
+        String key = alerts.stream().map(AlertRecordEntity::getId).collect(Collectors.joining(","));
+        return toMessage(contents.get(key, ids -> summaryOf(alerts)), tokens, platforms);
+    }
+
+    private OutboundMessage toMessage(Content content, List<String> tokens, Map<String, Platform> platforms) {
+        payloadEncoder.recordSize(content.payload());
+        return new OutboundMessage(content.title(), content.body(), content.payload().data(), tokens,
+                                   content.priority(), platforms, content.collapseKey(), content.tag(),
+                                   content.alertIds());
+    }
+
+    private Content contentOf(AlertRecordEntity saved) {
+        String title = titleFor(saved.getRiskLevel());
+        // TODO better message body with the victims details - name + relationship
+        String body = "Suspicious call from " + saved.getCallerNumber();
+        var payload = payloadEncoder.encode(title, body, List.of(
+                new PayloadEncoder.Field("callId", saved.getId(), PayloadEncoder.Mode.REQUIRED),
+                new PayloadEncoder.Field("riskLevel", saved.getRiskLevel().name(), PayloadEncoder.Mode.REQUIRED),
+                new PayloadEncoder.Field("phoneNumber", saved.getCallerNumber(), PayloadEncoder.Mode.OPTIONAL),
+                new PayloadEncoder.Field("modelAnalysis", saved.getModelAnalysis(), PayloadEncoder.Mode.TRUNCATABLE)
+        ));
+        return new Content(title, body, payload, collapseKeyFor(saved.getUserId()), tagFor(saved),
+                           priorityFor(saved.getRiskLevel()), alertIdsOf(List.of(saved)));
+    }
+
+    private Content summaryOf(List<AlertRecordEntity> alerts) {
+        RiskLevel highest = alerts.stream()
+                                  .map(AlertRecordEntity::getRiskLevel)
+                                  .filter(Objects::nonNull)
+                                  .max(Comparator.naturalOrder())
+                                  .orElse(YELLOW);
+        AlertRecordEntity latest = alerts.stream()
+                                         .filter(a -> a.getOccurredAt() != null)
+                                         .max(Comparator.comparing(AlertRecordEntity::getOccurredAt))
+                                         .orElse(alerts.get(alerts.size() - 1));
+
+        String title = titleFor(highest);
+        String body = "%d suspicious calls, latest from %s".formatted(alerts.size(), latest.getCallerNumber());
+        var payload = payloadEncoder.encode(title, body, List.of(
+                new PayloadEncoder.Field("callId", latest.getId(), PayloadEncoder.Mode.REQUIRED),
+                new PayloadEncoder.Field("alertCount", String.valueOf(alerts.size()), PayloadEncoder.Mode.REQUIRED),
+                new PayloadEncoder.Field("riskLevel", highest.name(), PayloadEncoder.Mode.REQUIRED),
+                new PayloadEncoder.Field("phoneNumber", latest.getCallerNumber(), PayloadEncoder.Mode.OPTIONAL),
+                new PayloadEncoder.Field("callIds", alerts.stream().map(AlertRecordEntity::getId)
+                                                          .collect(Collectors.joining(",")), PayloadEncoder.Mode.OPTIONAL)
+        ));
+        return new Content(title, body, payload, collapseKeyFor(latest.getUserId()), tagFor(latest), priorityFor(highest),
+                           alertIdsOf(alerts));
+    }
+
+    // A live RED warning must never wait behind anything else
+    private static NotificationPriority priorityFor(RiskLevel riskLevel) {
+        return riskLevel == RiskLevel.RED ? NotificationPriority.CRITICAL : NotificationPriority.HIGH;
+    }
+
+    // One pending alert per protegee on a caregiver's device; the app lists the rest when opened
+    private static String collapseKeyFor(String userId) {
+        return userId == null ? null : "alerts-" + userId;
+    }
+
+    // Every alert of the push, whatever the payload budget left of the callIds field
+    private static List<String> alertIdsOf(List<AlertRecordEntity> alerts) {
+        return alerts.stream().map(AlertRecordEntity::getId).filter(Objects::nonNull).toList();
+    }
+
+    // Same alert, same tag: an outbox resend after a send that timed out but still went through replaces the
+    // notification on the device; a summary is tagged with its latest alert
+    private static String tagFor(AlertRecordEntity alert) {
+        return alert.getId() == null ? null : "alert-" + alert.getId();
+    }
+
+    private static String titleFor(RiskLevel riskLevel) {
+        return switch (riskLevel) {
             case RED -> "⚠️ High Scam Risk";
             case YELLOW -> "⚠ Potential Scam";
             default -> "Info";
         };
-        // TODO better message body with the victims details - name + relationship
-        String body = "Suspicious call from " + saved.getCallerNumber();
-        Map<String, String> data = Map.of(
-                "callId", saved.getId(),
-                "riskLevel", saved.getRiskLevel().name(),
-                "phoneNumber", saved.getCallerNumber(),
-                "modelAnalysis", saved.getModelAnalysis()
-        );
-        return new OutboundMessage(title, body, data, tokens);
     }
 }
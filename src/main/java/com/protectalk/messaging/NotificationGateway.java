@@ -2,6 +2,29 @@ package com.protectalk.messaging;
 
 import com.google.firebase.messaging.FirebaseMessagingException;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface NotificationGateway {
     NotificationResult send(OutboundMessage m) throws FirebaseMessagingException;
+
+    /**
+     * Non-blocking send. The future completes on the provider's bounded I/O pool, or exceptionally
+     * with the provider exception (e.g. {@link FirebaseMessagingException}). Anything that blocks (Mongo writes)
+     * must be chained with an *Async stage on an application executor.
+     */
+    CompletableFuture<NotificationResult> sendAsync(OutboundMessage m);
+
+    /**
+     * Non-blocking send of one message to a topic; {@code m.tokens()} are the expected recipients,
+     * used for reporting only.
+     */
+    CompletableFuture<NotificationResult> sendToTopicAsync(String topic, OutboundMessage m);
+
+    /**
+     * False while the provider is considered down for sends of this priority; they then fail fast with
+     * {@link DeliveryDeferredException}.
+     */
+    default boolean isAvailable(NotificationPriority priority) {
+        return true;
+    }
 }
@@ -0,0 +1,9 @@
+package com.protectalk.messaging;
+
+/**
+ * Dispatch lane of a notification, highest first.
+ * CRITICAL = RED scam alerts, HIGH = other scam alerts, LOW = routine notifications (contact requests).
+ */
+public enum NotificationPriority {
+    CRITICAL, HIGH, LOW
+}
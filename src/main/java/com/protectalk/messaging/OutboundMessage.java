@@ -1,11 +1,34 @@
 package com.protectalk.messaging;
 
+import com.protectalk.device.model.Platform;
+
 import java.util.List;
 import java.util.Map;
 
+/**
+ * @param platforms   token -> device platform; tokens missing here get a message shaped for every platform
+ * @param collapseKey newer messages with the same key replace undelivered older ones (only honoured below CRITICAL)
+ * @param tag         what the message announces; a resend with the same tag replaces the notification already
+ *                    shown instead of adding a second one (every priority)
+ * @param alertIds    alerts the message is about, for the delivery log; empty for other notifications
+ */
 public record OutboundMessage(
     String title,
     String body,
     Map<String, String> data,
-    List<String> tokens
-) {}
+    List<String> tokens,
+    NotificationPriority priority,
+    Map<String, Platform> platforms,
+    String collapseKey,
+    String tag,
+    List<String> alertIds
+) {
+    public OutboundMessage(String title, String body, Map<String, String> data, List<String> tokens,
+                           NotificationPriority priority) {
+        this(title, body, data, tokens, priority, null, null, null, List.of());
+    }
+
+    public Platform platformOf(String token) {
+        return platforms == null ? null : platforms.get(token);
+    }
+}
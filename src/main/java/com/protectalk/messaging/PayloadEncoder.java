@@ -0,0 +1,103 @@
+package com.protectalk.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the data map of a push within a byte budget (FCM rejects messages over 4 KB, and big ones are slower).
+ * - Size is counted like FCM does: UTF-8 bytes of the title, the body and every data key and value.
+ * - REQUIRED fields are always kept; OPTIONAL fields are dropped and TRUNCATABLE fields are cut (on a character
+ *   boundary) when they do not fit, in the order given.
+ * - When anything was cut or dropped, {@value #TRUNCATED_KEY}=true tells the app to fetch the details by callId.
+ */
+@Component
+public class PayloadEncoder {
+
+    public static final String TRUNCATED_KEY = "truncated";
+
+    private static final int MIN_TRUNCATED_BYTES = 32;  // a shorter excerpt is not worth sending
+
+    public enum Mode { REQUIRED, OPTIONAL, TRUNCATABLE }
+
+    public record Field(String key, String value, Mode mode) {}
+
+    public record Payload(Map<String, String> data, int bytes, boolean truncated) {}
+
+    private final int                 maxBytes;
+    private final DistributionSummary payloadBytes;
+    private final Counter             truncatedPayloads;
+
+    public PayloadEncoder(@Value("${protectalk.notifications.payload.max-bytes:3072}") int maxBytes,
+                          MeterRegistry meterRegistry) {
+        this.maxBytes = maxBytes;
+        this.payloadBytes = DistributionSummary.builder("notifications.payload.bytes")
+                                               .description("Title, body and data bytes per composed push")
+                                               .baseUnit("bytes")
+                                               .publishPercentiles(0.5, 0.99)
+                                               .serviceLevelObjectives(1024, 2048, 3072, 4096)
+                                               .register(meterRegistry);
+        this.truncatedPayloads = meterRegistry.counter("notifications.payload.truncated");
+    }
+
+    public Payload encode(String title, String body, List<Field> fields) {
+        int reserve = utf8Length(TRUNCATED_KEY) + utf8Length("true");
+        int used = utf8Length(title) + utf8Length(body);
+        boolean truncated = false;
+
+        Map<String, String> data = new LinkedHashMap<>();
+        for (Field field : fields) {
+            if (field.value() == null) {
+                continue;
+            }
+            int size = utf8Length(field.key()) + utf8Length(field.value());
+            int room = maxBytes - reserve - used;
+            if (field.mode() == Mode.REQUIRED || size <= room) {
+                data.put(field.key(), field.value());
+                used += size;
+            } else if (field.mode() == Mode.TRUNCATABLE && room - utf8Length(field.key()) >= MIN_TRUNCATED_BYTES) {
+                String excerpt = truncate(field.value(), room - utf8Length(field.key()));
+                data.put(field.key(), excerpt);
+                used += utf8Length(field.key()) + utf8Length(excerpt);
+                truncated = true;
+            } else {
+                truncated = true;
+            }
+        }
+        if (truncated) {
+            data.put(TRUNCATED_KEY, "true");
+            used += reserve;
+            truncatedPayloads.increment();
+        }
+        return new Payload(Map.copyOf(data), used, truncated);
+    }
+
+    public void recordSize(Payload payload) {
+        payloadBytes.record(payload.bytes());
+    }
+
+    private static int utf8Length(String value) {
+        return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    // Longest prefix that fits in maxBytes of UTF-8, never splitting a character
+    private static String truncate(String value, int maxBytes) {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                                                       .onMalformedInput(CodingErrorAction.REPLACE)
+                                                       .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer in = CharBuffer.wrap(value);
+        encoder.encode(in, ByteBuffer.allocate(maxBytes), true);
+        return value.substring(0, in.position());
+    }
+}
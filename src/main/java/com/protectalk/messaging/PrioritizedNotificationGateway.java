@@ -0,0 +1,237 @@
+package com.protectalk.messaging;
+
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.protectalk.messaging.deliverylog.DeliveryLog;
+import com.protectalk.messaging.fcm.FcmNotificationClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Priority lanes in front of the provider client; this is the {@link NotificationGateway} the services get.
+ * - Every {@link NotificationPriority} has its own concurrency limit and bounded queue, so routine traffic can
+ *   never take the send slots of a scam warning. Queued sends are started highest lane first.
+ * - The limits count messages; the per-token requests of admitted messages are ordered by priority again in
+ *   {@link com.protectalk.messaging.fcm.FcmSendPool}.
+ * - CRITICAL and HIGH are never shed: past their queue capacity they are sent right away.
+ * - LOW is shed when its queue is full or a send waited longer than {@code low.max-queue-time}.
+ * Queue depth, in-flight sends, queue wait and end-to-end latency are exported per lane.
+ * Every outcome, including shed and deferred sends, goes to the {@link DeliveryLog}.
+ */
+@Slf4j
+@Primary
+@Component
+public class PrioritizedNotificationGateway implements NotificationGateway {
+
+    private final NotificationGateway             delegate;
+    private final DeliveryLog                     deliveryLog;
+    private final Map<NotificationPriority, Lane> lanes         = new EnumMap<>(NotificationPriority.class);
+    private final AtomicInteger                   drainRequests = new AtomicInteger();
+
+    public PrioritizedNotificationGateway(FcmNotificationClient delegate, DeliveryLog deliveryLog,
+                                          @Value("${protectalk.notifications.lanes.critical.max-concurrency:64}") int criticalConcurrency,
+                                          @Value("${protectalk.notifications.lanes.critical.queue-capacity:1000}") int criticalCapacity,
+                                          @Value("${protectalk.notifications.lanes.high.max-concurrency:32}") int highConcurrency,
+                                          @Value("${protectalk.notifications.lanes.high.queue-capacity:1000}") int highCapacity,
+                                          @Value("${protectalk.notifications.lanes.low.max-concurrency:4}") int lowConcurrency,
+                                          @Value("${protectalk.notifications.lanes.low.queue-capacity:500}") int lowCapacity,
+                                          @Value("${protectalk.notifications.lanes.low.max-queue-time:PT30S}") Duration lowMaxQueueTime,
+                                          MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.deliveryLog = deliveryLog;
+        lanes.put(NotificationPriority.CRITICAL, new Lane(NotificationPriority.CRITICAL, criticalConcurrency,
+                                                          criticalCapacity, null, meterRegistry));
+        lanes.put(NotificationPriority.HIGH, new Lane(NotificationPriority.HIGH, highConcurrency,
+                                                      highCapacity, null, meterRegistry));
+        lanes.put(NotificationPriority.LOW, new Lane(NotificationPriority.LOW, lowConcurrency,
+                                                     lowCapacity, lowMaxQueueTime, meterRegistry));
+    }
+
+    @Override
+    public NotificationResult send(OutboundMessage m) throws FirebaseMessagingException {
+        try {
+            return sendAsync(m).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof FirebaseMessagingException fme) {
+                throw fme;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<NotificationResult> sendAsync(OutboundMessage m) {
+        return submit(m, null, () -> delegate.sendAsync(m));
+    }
+
+    @Override
+    public CompletableFuture<NotificationResult> sendToTopicAsync(String topic, OutboundMessage m) {
+        return submit(m, topic, () -> delegate.sendToTopicAsync(topic, m));
+    }
+
+    @Override
+    public boolean isAvailable(NotificationPriority priority) {
+        return delegate.isAvailable(priority);
+    }
+
+    private CompletableFuture<NotificationResult> submit(OutboundMessage m, String topic,
+                                                         Supplier<CompletableFuture<NotificationResult>> send) {
+        Lane lane = lanes.get(m.priority() == null ? NotificationPriority.HIGH : m.priority());
+        var pending = new Pending(send, lane, System.nanoTime(), new CompletableFuture<>());
+
+        pending.result.whenComplete((result, error) -> deliveryLog.record(m, topic, result, error));
+        boolean overflow = false;
+        boolean shed = false;
+        synchronized (lane) {
+            if (lane.queue.size() < lane.capacity) {
+                lane.queue.addLast(pending);
+            } else if (lane.maxQueueTime != null) {
+                shed = true;
+            } else {
+                // never shed: go past the concurrency limit rather than drop a warning
+                lane.inFlight++;
+                overflow = true;
+            }
+        }
+        if (shed) {
+            lane.shed.increment();
+            log.warn("{} notification lane full ({}), send shed", lane.priority, lane.capacity);
+            pending.result.completeExceptionally(new RejectedExecutionException(lane.priority + " notification lane full"));
+        } else if (overflow) {
+            lane.overflow.increment();
+            dispatch(pending);
+        } else {
+            drain();
+        }
+        return pending.result;
+    }
+
+    // Start queued sends, lanes in priority order; one thread drains at a time, others leave it a request
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            for (Lane lane : lanes.values()) {
+                List<Pending> ready = new ArrayList<>();
+                List<Pending> expired = new ArrayList<>();
+                synchronized (lane) {
+                    while (lane.inFlight < lane.maxConcurrency && !lane.queue.isEmpty()) {
+                        Pending next = lane.queue.pollFirst();
+                        if (lane.maxQueueTime != null && System.nanoTime() - next.enqueuedAt > lane.maxQueueTime.toNanos()) {
+                            expired.add(next);
+                        } else {
+                            lane.inFlight++;
+                            ready.add(next);
+                        }
+                    }
+                }
+                if (!expired.isEmpty()) {
+                    lane.shed.increment(expired.size());
+                    log.warn("Shed {} {} notifications queued longer than {}", expired.size(), lane.priority,
+                             lane.maxQueueTime);
+                    expired.forEach(p -> p.result.completeExceptionally(new RejectedExecutionException(
+                            lane.priority + " notification waited longer than " + lane.maxQueueTime)));
+                }
+                ready.forEach(this::dispatch);
+            }
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void dispatch(Pending pending) {
+        Lane lane = pending.lane;
+        lane.queueWait.record(System.nanoTime() - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+
+        CompletableFuture<NotificationResult> send;
+        try {
+            send = pending.send.get();
+        } catch (Exception e) {
+            send = CompletableFuture.failedFuture(e);
+        }
+        send.whenComplete((result, error) -> {
+            synchronized (lane) {
+                lane.inFlight--;
+            }
+            lane.latency.record(System.nanoTime() - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+            if (error != null) {
+                pending.result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                                                     ? error.getCause() : error);
+            } else {
+                pending.result.complete(result);
+            }
+            drain();
+        });
+    }
+
+    private record Pending(Supplier<CompletableFuture<NotificationResult>> send, Lane lane, long enqueuedAt,
+                           CompletableFuture<NotificationResult> result) {}
+
+    private static final class Lane {
+        final NotificationPriority priority;
+        final int                  maxConcurrency;
+        final int                  capacity;
+        final Duration             maxQueueTime;  // null = never shed
+        final ArrayDeque<Pending>  queue = new ArrayDeque<>();
+        final Timer                queueWait;
+        final Timer                latency;
+        final Counter              shed;
+        final Counter              overflow;
+        int                        inFlight;
+
+        Lane(NotificationPriority priority, int maxConcurrency, int capacity, Duration maxQueueTime,
+             MeterRegistry meterRegistry) {
+            this.priority = priority;
+            this.maxConcurrency = Math.max(1, maxConcurrency);
+            this.capacity = Math.max(0, capacity);
+            this.maxQueueTime = maxQueueTime;
+            String tag = priority.name().toLowerCase(Locale.ROOT);
+            this.queueWait = Timer.builder("notifications.lane.queue_wait")
+                                  .tag("lane", tag)
+                                  .publishPercentiles(0.5, 0.99)
+                                  .register(meterRegistry);
+            this.latency = Timer.builder("notifications.lane.latency")
+                                .description("Time from submit to provider response")
+                                .tag("lane", tag)
+                                .publishPercentiles(0.5, 0.99)
+                                .register(meterRegistry);
+            this.shed = meterRegistry.counter("notifications.lane.shed", "lane", tag);
+            this.overflow = meterRegistry.counter("notifications.lane.overflow", "lane", tag);
+            meterRegistry.gauge("notifications.lane.queued", Tags.of("lane", tag),
+                                this, Lane::queued);
+            meterRegistry.gauge("notifications.lane.in_flight", Tags.of("lane", tag),
+                                this, Lane::inFlight);
+        }
+
+        synchronized int queued() {
+            return queue.size();
+        }
+
+        synchronized int inFlight() {
+            return inFlight;
+        }
+    }
+}
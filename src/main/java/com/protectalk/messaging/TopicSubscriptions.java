@@ -0,0 +1,15 @@
+package com.protectalk.messaging;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Server-side topic membership for device tokens. Both calls are idempotent; the future fails
+ * if any token could not be (un)subscribed for a reason other than the token being invalid.
+ */
+public interface TopicSubscriptions {
+
+    CompletableFuture<Void> subscribe(String topic, List<String> tokens);
+
+    CompletableFuture<Void> unsubscribe(String topic, List<String> tokens);
+}
@@ -0,0 +1,204 @@
+package com.protectalk.messaging.deliverylog;
+
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.protectalk.messaging.Delivery;
+import com.protectalk.messaging.DeliveryDeferredException;
+import com.protectalk.messaging.NotificationResult;
+import com.protectalk.messaging.OutboundMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-device outcome of every push, for answering "I never got it".
+ * - {@link #record} only converts the result and offers the entries to a bounded queue, so it never blocks a send;
+ *   when the queue is full entries are dropped and counted.
+ * - A flush writes up to {@code flush-size} entries with one unordered bulk insert, when that many are waiting
+ *   or every {@code flush-interval}. Remaining entries are flushed on shutdown.
+ */
+@Slf4j
+@Component
+public class DeliveryLog {
+
+    private static final int MAX_RESULTS = 500;
+
+    private final MongoTemplate                   mongoTemplate;
+    private final DeliveryLogRepository           deliveryLogRepository;
+    private final TaskScheduler                   taskScheduler;
+    private final boolean                         enabled;
+    private final int                             flushSize;
+    private final BlockingQueue<DeliveryLogEntry> queue;
+    private final AtomicBoolean                   flushScheduled = new AtomicBoolean();
+    private final Counter                         writtenEntries;
+    private final Counter                         droppedEntries;
+    private final Counter                         failedEntries;
+
+    public DeliveryLog(MongoTemplate mongoTemplate, DeliveryLogRepository deliveryLogRepository,
+                       DeliveryLogInitializer initializer, TaskScheduler taskScheduler,
+                       @Value("${protectalk.notifications.delivery-log.enabled:true}") boolean enabled,
+                       @Value("${protectalk.notifications.delivery-log.capacity:50000}") int capacity,
+                       @Value("${protectalk.notifications.delivery-log.flush-size:1000}") int flushSize,
+                       @Value("${protectalk.notifications.delivery-log.flush-interval:PT1S}") Duration flushInterval,
+                       MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.deliveryLogRepository = deliveryLogRepository;
+        this.taskScheduler = taskScheduler;
+        this.enabled = enabled;
+        this.flushSize = flushSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writtenEntries = meterRegistry.counter("notifications.delivery_log.written");
+        this.droppedEntries = meterRegistry.counter("notifications.delivery_log.dropped");
+        this.failedEntries = meterRegistry.counter("notifications.delivery_log.failed");
+        meterRegistry.gauge("notifications.delivery_log.queued", queue, BlockingQueue::size);
+
+        if (enabled) {
+            taskScheduler.scheduleWithFixedDelay(this::flush, flushInterval);
+        }
+    }
+
+    /**
+     * Log the outcome of a send: the provider result, or the error the whole send failed with.
+     */
+    public void record(OutboundMessage m, String topic, NotificationResult result, Throwable error) {
+        if (!enabled || m == null) {
+            return;
+        }
+        try {
+            Instant now = Instant.now();
+            List<DeliveryLogEntry> entries = new ArrayList<>();
+            for (String alertId : alertIdsOf(m)) {
+                if (error != null) {
+                    String code = errorCode(error);
+                    tokensOf(m).forEach(token -> entries.add(entry(now, m, alertId, topic, token, false, null, code, 0)));
+                } else if (topic != null) {
+                    // one topic message; its outcome applies to every expected recipient
+                    Delivery delivery = result.deliveries().isEmpty() ? null : result.deliveries().get(0);
+                    boolean success = delivery != null && delivery.success();
+                    tokensOf(m).forEach(token -> entries.add(entry(now, m, alertId, topic, token, success,
+                                                                   delivery == null ? null : delivery.messageId(),
+                                                                   delivery == null ? null : delivery.errorCode(),
+                                                                   delivery == null ? 0 : delivery.attempts())));
+                } else {
+                    result.deliveries().forEach(delivery -> entries.add(entry(now, m, alertId, null, delivery.token(),
+                                                                              delivery.success(), delivery.messageId(),
+                                                                              delivery.errorCode(), delivery.attempts())));
+                }
+            }
+            enqueue(entries);
+        } catch (Exception e) {
+            log.warn("Failed to log push deliveries: {}", e.getMessage());
+        }
+    }
+
+    public List<DeliveryLogEntry> forAlert(String alertId, int limit) {
+        return deliveryLogRepository.findByAlertIdOrderBySentAtDesc(alertId, page(limit));
+    }
+
+    public List<DeliveryLogEntry> forToken(String fcmToken, Instant since, int limit) {
+        return deliveryLogRepository.findByTokenAndSentAtAfterOrderBySentAtDesc(fcmToken, since, page(limit));
+    }
+
+    private static PageRequest page(int limit) {
+        return PageRequest.of(0, Math.max(1, Math.min(limit, MAX_RESULTS)));
+    }
+
+    public void flush() {
+        flushScheduled.set(false);
+        List<DeliveryLogEntry> batch = new ArrayList<>(flushSize);
+        while (queue.drainTo(batch, flushSize) > 0) {
+            write(batch);
+            batch = new ArrayList<>(flushSize);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void enqueue(List<DeliveryLogEntry> entries) {
+        int dropped = 0;
+        for (DeliveryLogEntry entry : entries) {
+            if (!queue.offer(entry)) {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            droppedEntries.increment(dropped);
+            log.warn("Delivery log queue full ({}), dropped {} entries", queue.size(), dropped);
+        }
+        if (queue.size() >= flushSize && flushScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::flush, Instant.now());
+        }
+    }
+
+    private void write(List<DeliveryLogEntry> batch) {
+        try {
+            int inserted = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DeliveryLogEntry.class)
+                                        .insert(batch)
+                                        .execute()
+                                        .getInsertedCount();
+            writtenEntries.increment(inserted);
+            log.debug("Flushed delivery log - batch: {} inserted: {}", batch.size(), inserted);
+        } catch (Exception e) {
+            failedEntries.increment(batch.size());
+            log.error("Failed to flush {} delivery log entries", batch.size(), e);
+        }
+    }
+
+    private static DeliveryLogEntry entry(Instant sentAt, OutboundMessage m, String alertId, String topic, String token,
+                                          boolean success, String messageId, String errorCode, int attempts) {
+        return DeliveryLogEntry.builder()
+                               .sentAt(sentAt)
+                               .token(token)
+                               .alertId(alertId)
+                               .topic(topic)
+                               .priority(m.priority() == null ? null : m.priority().name())
+                               .success(success)
+                               .messageId(messageId)
+                               .errorCode(errorCode)
+                               .attempts(attempts)
+                               .build();
+    }
+
+    // Alerts a push is about, as given by the sender (the payload may have dropped callIds); null = no alert
+    private static List<String> alertIdsOf(OutboundMessage m) {
+        return m.alertIds() == null || m.alertIds().isEmpty() ? Collections.singletonList(null) : m.alertIds();
+    }
+
+    private static List<String> tokensOf(OutboundMessage m) {
+        return m.tokens() == null ? List.of() : m.tokens();
+    }
+
+    private static String errorCode(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof DeliveryDeferredException) {
+            return "DEFERRED";
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return "SHED";
+        }
+        if (cause instanceof FirebaseMessagingException fme && fme.getMessagingErrorCode() != null) {
+            return fme.getMessagingErrorCode().name();
+        }
+        return cause.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,45 @@
+package com.protectalk.messaging.deliverylog;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TimeSeries;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+
+import java.time.Instant;
+
+/**
+ * Outcome of one push to one device (time-series delivery_log, expired by {@link DeliveryLogInitializer}).
+ * - A summary push covering several alerts is logged once per alert, so every alert has its own history.
+ * - Topic sends are logged per expected recipient token with the topic set; FCM only reports
+ *   whether it accepted the message, not per-device delivery.
+ * - The series key is the priority (three values), so buckets fill up across devices; per-token reads use the
+ *   ix_token_sent secondary index.
+ */
+@Document(DeliveryLogEntry.COLLECTION)
+@TimeSeries(collection = DeliveryLogEntry.COLLECTION, timeField = "sentAt", metaField = "priority",
+            granularity = Granularity.SECONDS)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DeliveryLogEntry {
+
+    public static final String COLLECTION = "delivery_log";
+
+    @Id
+    private String id;
+
+    private Instant sentAt;       // when the provider answered
+    private String  token;        // recipient FCM token
+    private String  alertId;      // alert the push was about; null for other pushes
+    private String  topic;        // set for topic sends
+    private String  priority;     // series key
+    private boolean success;
+    private String  messageId;
+    private String  errorCode;    // provider error code, DEFERRED (circuit open) or SHED (lane full)
+    private int     attempts;
+}
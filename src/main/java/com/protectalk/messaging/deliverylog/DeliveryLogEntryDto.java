@@ -0,0 +1,26 @@
+package com.protectalk.messaging.deliverylog;
+
+import java.time.Instant;
+
+public record DeliveryLogEntryDto(
+    Instant sentAt,
+    String alertId,
+    String device,        // last characters of the recipient token, enough to tell devices apart
+    boolean viaTopic,
+    String priority,
+    boolean success,
+    String messageId,
+    String errorCode,
+    int attempts
+) {
+    private static final int TOKEN_SUFFIX_LENGTH = 8;
+
+    public static DeliveryLogEntryDto from(DeliveryLogEntry entry) {
+        String token = entry.getToken();
+        String device = token == null || token.length() <= TOKEN_SUFFIX_LENGTH
+                        ? token : "…" + token.substring(token.length() - TOKEN_SUFFIX_LENGTH);
+        return new DeliveryLogEntryDto(entry.getSentAt(), entry.getAlertId(), device, entry.getTopic() != null,
+                                       entry.getPriority(), entry.isSuccess(), entry.getMessageId(),
+                                       entry.getErrorCode(), entry.getAttempts());
+    }
+}
@@ -0,0 +1,81 @@
+package com.protectalk.messaging.deliverylog;
+
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates delivery_log as a time-series collection (inserting first would create a plain one) and keeps its
+ * expiry in line with {@code ttl}. Runs before {@link DeliveryLog} starts writing.
+ * - ix_alert_sent serves the by-alert query, ix_token_sent the by-token query.
+ * - The meta field of an existing collection cannot be changed; one created with an older meta field keeps
+ *   working but is reported until it is dropped (the log is recreated on the next start).
+ * Failures are logged, not thrown: the delivery log is diagnostics and must not keep the service down.
+ */
+@Slf4j
+@Component
+public class DeliveryLogInitializer {
+
+    private static final String META_FIELD = "priority";
+
+    private final MongoTemplate mongoTemplate;
+    private final Duration      ttl;
+
+    public DeliveryLogInitializer(MongoTemplate mongoTemplate,
+                                  @Value("${protectalk.notifications.delivery-log.ttl:P30D}") Duration ttl) {
+        this.mongoTemplate = mongoTemplate;
+        this.ttl = ttl;
+    }
+
+    @PostConstruct
+    public void ensureCollection() {
+        try {
+            if (mongoTemplate.collectionExists(DeliveryLogEntry.COLLECTION)) {
+                mongoTemplate.executeCommand(new Document("collMod", DeliveryLogEntry.COLLECTION)
+                                                     .append("expireAfterSeconds", ttl.toSeconds()));
+                warnOnOtherMetaField();
+            } else {
+                var timeSeries = new TimeSeriesOptions("sentAt").metaField(META_FIELD)
+                                                                .granularity(TimeSeriesGranularity.SECONDS);
+                mongoTemplate.getDb().createCollection(DeliveryLogEntry.COLLECTION, new CreateCollectionOptions()
+                        .timeSeriesOptions(timeSeries)
+                        .expireAfter(ttl.toSeconds(), TimeUnit.SECONDS));
+                log.info("Created time-series collection {} - expire after: {}", DeliveryLogEntry.COLLECTION, ttl);
+            }
+
+            var indexOps = mongoTemplate.indexOps(DeliveryLogEntry.class);
+            log.info("Ensured delivery log index: {}", indexOps.ensureIndex(new Index().on("alertId", Sort.Direction.ASC)
+                                                                                      .on("sentAt", Sort.Direction.DESC)
+                                                                                      .named("ix_alert_sent")));
+            log.info("Ensured delivery log index: {}", indexOps.ensureIndex(new Index().on("token", Sort.Direction.ASC)
+                                                                                      .on("sentAt", Sort.Direction.DESC)
+                                                                                      .named("ix_token_sent")));
+        } catch (Exception e) {
+            log.error("Failed to set up the {} collection, delivery log writes may fail", DeliveryLogEntry.COLLECTION, e);
+        }
+    }
+
+    private void warnOnOtherMetaField() {
+        Document info = mongoTemplate.getDb().listCollections()
+                                     .filter(new Document("name", DeliveryLogEntry.COLLECTION))
+                                     .first();
+        Document options = info == null ? null : info.get("options", Document.class);
+        Document timeSeries = options == null ? null : options.get("timeseries", Document.class);
+        String metaField = timeSeries == null ? null : timeSeries.getString("metaField");
+        if (!META_FIELD.equals(metaField)) {
+            log.warn("Collection {} has meta field {} instead of {} - drop it to have it recreated",
+                     DeliveryLogEntry.COLLECTION, metaField, META_FIELD);
+        }
+    }
+}
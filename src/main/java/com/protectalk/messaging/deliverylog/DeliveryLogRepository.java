@@ -0,0 +1,14 @@
+package com.protectalk.messaging.deliverylog;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface DeliveryLogRepository extends MongoRepository<DeliveryLogEntry, String> {
+
+    List<DeliveryLogEntry> findByAlertIdOrderBySentAtDesc(String alertId, Pageable pageable);
+
+    List<DeliveryLogEntry> findByTokenAndSentAtAfterOrderBySentAtDesc(String token, Instant since, Pageable pageable);
+}
@@ -0,0 +1,164 @@
+package com.protectalk.messaging.fcm;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker for provider calls.
+ * - CLOSED: calls pass; the last {@code windowSize} outcomes are kept. Once {@code minimumCalls} are recorded,
+ *   the breaker opens when the failure rate or the slow-call rate reaches its threshold (percent).
+ * - OPEN: calls are rejected for {@code openDuration}.
+ * - HALF_OPEN: up to {@code probes} calls pass; all of them succeeding closes the breaker, any failure
+ *   or slow call opens it again.
+ * Every state change starts a new generation; an outcome only counts in the generation its call was admitted in,
+ * so a late result of a call made while CLOSED can neither close nor reopen a HALF_OPEN breaker.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * An admitted call, to be handed back to {@link #record}.
+     */
+    public record Permit(long generation) {}
+
+    private final int       windowSize;
+    private final int       minimumCalls;
+    private final double    failureRateThreshold;
+    private final long      slowCallNanos;
+    private final double    slowCallRateThreshold;
+    private final long      openNanos;
+    private final int       probes;
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private final LongSupplier nanoTime;
+
+    private int   next;
+    private int   recorded;
+    private int   failures;
+    private int   slow;
+
+    private State state = State.CLOSED;
+    private long  generation;
+    private long  openedAt;
+    private int   probesInFlight;
+    private int   probeSuccesses;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration slowCallDuration,
+                          double slowCallRateThreshold, Duration openDuration, int probes) {
+        this(windowSize, minimumCalls, failureRateThreshold, slowCallDuration, slowCallRateThreshold, openDuration,
+             probes, System::nanoTime);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration slowCallDuration,
+                   double slowCallRateThreshold, Duration openDuration, int probes, LongSupplier nanoTime) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.probes = Math.max(1, probes);
+        this.failedCalls = new boolean[this.windowSize];
+        this.slowCalls = new boolean[this.windowSize];
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Ask to make a call; null when rejected. Every permit must be followed by exactly one {@link #record}.
+     */
+    public synchronized Permit tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoTime.getAsLong() - openedAt < openNanos) {
+                return null;
+            }
+            state = State.HALF_OPEN;
+            generation++;
+            probesInFlight = 0;
+            probeSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= probes) {
+                return null;
+            }
+            probesInFlight++;
+        }
+        return new Permit(generation);
+    }
+
+    public synchronized void record(Permit permit, long latencyNanos, boolean failed) {
+        if (permit.generation() != generation) {
+            return; // late outcome of a call admitted before the last state change
+        }
+        boolean slowCall = latencyNanos >= slowCallNanos;
+        switch (state) {
+            case HALF_OPEN -> {
+                probesInFlight = Math.max(0, probesInFlight - 1);
+                if (failed || slowCall) {
+                    open();
+                } else if (++probeSuccesses >= probes) {
+                    close();
+                }
+            }
+            case CLOSED -> {
+                if (recorded == windowSize) {
+                    failures -= failedCalls[next] ? 1 : 0;
+                    slow -= slowCalls[next] ? 1 : 0;
+                } else {
+                    recorded++;
+                }
+                failedCalls[next] = failed;
+                slowCalls[next] = slowCall;
+                failures += failed ? 1 : 0;
+                slow += slowCall ? 1 : 0;
+                next = (next + 1) % windowSize;
+
+                if (recorded >= minimumCalls
+                        && (failures * 100d / recorded >= failureRateThreshold
+                            || slow * 100d / recorded >= slowCallRateThreshold)) {
+                    open();
+                }
+            }
+            case OPEN -> { } // unreachable: opening starts a new generation
+        }
+    }
+
+    /**
+     * Whether a call would currently be considered (closed, or open long enough to probe).
+     */
+    public synchronized boolean isCallPermitted() {
+        return state != State.OPEN || nanoTime.getAsLong() - openedAt >= openNanos;
+    }
+
+    // Time left until the breaker lets probes through (zero unless open)
+    public synchronized Duration remainingOpen() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, openNanos - (nanoTime.getAsLong() - openedAt)));
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        generation++;
+        openedAt = nanoTime.getAsLong();
+        resetWindow();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        generation++;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slow = 0;
+    }
+}
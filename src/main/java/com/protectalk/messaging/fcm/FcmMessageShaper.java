@@ -0,0 +1,129 @@
+package com.protectalk.messaging.fcm;
+
+import com.google.firebase.messaging.AndroidConfig;
+import com.google.firebase.messaging.AndroidNotification;
+import com.google.firebase.messaging.ApnsConfig;
+import com.google.firebase.messaging.Aps;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.WebpushConfig;
+import com.protectalk.device.model.Platform;
+import com.protectalk.messaging.NotificationPriority;
+import com.protectalk.messaging.OutboundMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Platform delivery options per {@link NotificationPriority}, so the OS does not hold back a scam warning.
+ * - CRITICAL (RED): Android high priority (wakes the device from Doze), APNs priority 10 with the
+ *   time-sensitive interruption level (breaks through Focus), web push urgency high. Never collapsed.
+ * - HIGH (YELLOW): normal priority, collapsed per protegee and dropped after {@code alert-ttl}.
+ * - LOW: normal priority, provider defaults otherwise.
+ * At every priority the message tag is the Android notification tag and, unless HIGH collapses per protegee, the
+ * apns-collapse-id, so a resend of an alert replaces the notification already shown rather than repeating it.
+ * A token with a known platform only gets its own config; unknown or desktop platforms and topics get all of them.
+ */
+@Component
+public class FcmMessageShaper {
+
+    private static final int MAX_APNS_COLLAPSE_ID_BYTES = 64;
+
+    private final boolean  enabled;
+    private final Duration alertTtl;
+
+    public FcmMessageShaper(@Value("${protectalk.fcm.shaping.enabled:true}") boolean enabled,
+                            @Value("${protectalk.fcm.shaping.alert-ttl:PT1H}") Duration alertTtl) {
+        this.enabled = enabled;
+        this.alertTtl = alertTtl;
+    }
+
+    /**
+     * The message for one target, built from configs prepared once per send by {@link #shape}.
+     */
+    public interface Shape {
+        Message.Builder builder(Platform platform);
+    }
+
+    public Shape shape(OutboundMessage m) {
+        var notification = Notification.builder().setTitle(m.title()).setBody(m.body()).build();
+        Map<String, String> data = m.data() == null ? Map.of() : m.data();
+        if (!enabled) {
+            return platform -> Message.builder().setNotification(notification).putAllData(data);
+        }
+        var priority = m.priority() == null ? NotificationPriority.HIGH : m.priority();
+        String collapseKey = priority == NotificationPriority.HIGH ? m.collapseKey() : null;
+        Duration ttl = priority == NotificationPriority.HIGH ? alertTtl : null;
+
+        var android = android(priority, collapseKey, m.tag(), ttl);
+        var apns = apns(priority, collapseKey != null ? collapseKey : m.tag(), ttl);
+        var webpush = webpush(priority, ttl);
+        return platform -> {
+            var builder = Message.builder().setNotification(notification).putAllData(data);
+            boolean any = platform == null || platform == Platform.DESKTOP;
+            if (any || platform == Platform.ANDROID) {
+                builder.setAndroidConfig(android);
+            }
+            if (any || platform == Platform.IOS) {
+                builder.setApnsConfig(apns);
+            }
+            if (any || platform == Platform.WEB) {
+                builder.setWebpushConfig(webpush);
+            }
+            return builder;
+        };
+    }
+
+    private static AndroidConfig android(NotificationPriority priority, String collapseKey, String tag, Duration ttl) {
+        var builder = AndroidConfig.builder();
+        var notification = AndroidNotification.builder().setTag(tag);
+        if (priority == NotificationPriority.CRITICAL) {
+            builder.setPriority(AndroidConfig.Priority.HIGH);
+            notification.setPriority(AndroidNotification.Priority.MAX)
+                        .setDefaultSound(true);
+        } else {
+            builder.setPriority(AndroidConfig.Priority.NORMAL);
+        }
+        if (priority == NotificationPriority.CRITICAL || tag != null) {
+            builder.setNotification(notification.build());
+        }
+        if (collapseKey != null) {
+            builder.setCollapseKey(collapseKey);
+        }
+        if (ttl != null) {
+            builder.setTtl(ttl.toMillis());
+        }
+        return builder.build();
+    }
+
+    private static ApnsConfig apns(NotificationPriority priority, String collapseId, Duration ttl) {
+        var aps = Aps.builder().setSound("default");
+        var builder = ApnsConfig.builder().putHeader("apns-push-type", "alert");
+        if (priority == NotificationPriority.CRITICAL) {
+            aps.putCustomData("interruption-level", "time-sensitive");
+            builder.putHeader("apns-priority", "10");
+        } else {
+            builder.putHeader("apns-priority", "5");
+        }
+        if (collapseId != null && collapseId.getBytes(StandardCharsets.UTF_8).length <= MAX_APNS_COLLAPSE_ID_BYTES) {
+            builder.putHeader("apns-collapse-id", collapseId);
+        }
+        if (ttl != null) {
+            builder.putHeader("apns-expiration", String.valueOf(Instant.now().plus(ttl).getEpochSecond()));
+        }
+        return builder.setAps(aps.build()).build();
+    }
+
+    private static WebpushConfig webpush(NotificationPriority priority, Duration ttl) {
+        var builder = WebpushConfig.builder()
+                                   .putHeader("Urgency", priority == NotificationPriority.CRITICAL ? "high" : "normal");
+        if (ttl != null) {
+            builder.putHeader("TTL", String.valueOf(ttl.toSeconds()));
+        }
+        return builder.build();
+    }
+}
@@ -2,91 +2,533 @@ package com.protectalk.messaging.fcm;
 
 import com.google.firebase.messaging.*;
 import com.protectalk.messaging.Delivery;
+import com.protectalk.messaging.DeliveryDeferredException;
 import com.protectalk.messaging.NotificationGateway;
+import com.protectalk.messaging.NotificationPriority;
 import com.protectalk.messaging.NotificationResult;
 import com.protectalk.messaging.OutboundMessage;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
+/**
+ * FCM adapter: chunked per-message sends with per-token retries, a retry budget and a circuit breaker.
+ * Each {@link NotificationPriority} has its own retry budget and circuit breaker, so failing routine (LOW) sends
+ * can neither use up the retries of a scam warning nor open the circuit in front of it.
+ * Messages are sent on the {@link FcmSendPool}, which starts queued sends highest priority first.
+ */
 @Service
-@RequiredArgsConstructor
 public class FcmNotificationClient implements NotificationGateway {
     private static final Logger log = LoggerFactory.getLogger(FcmNotificationClient.class);
+
+    // Provider limit for MulticastMessage
+    private static final int MAX_MULTICAST_TOKENS = 500;
+
+    // Transient provider errors worth resending (per token or for the whole request). UNAVAILABLE (503) is not
+    // among them: the SDK already retries it up to 4 times with backoff, so it arrives here as a final outcome.
+    private static final Set<String> RETRYABLE_CODES =
+            Set.of("INTERNAL", "QUOTA_EXCEEDED", "RESOURCE_EXHAUSTED");
+
+    // Outcome of a message that got no answer within call-timeout; it may still be delivered, so it is never resent
+    private static final String TIMEOUT_CODE = "TIMEOUT";
+
+    // Errors that count against the provider's health in the circuit breaker
+    private static final Set<String> PROVIDER_FAILURE_CODES =
+            Set.of("UNAVAILABLE", "INTERNAL", "QUOTA_EXCEEDED", "RESOURCE_EXHAUSTED", TIMEOUT_CODE);
+
     private final FirebaseMessaging fcm;
+    private final FcmSendPool       sendPool;       // one blocking send per message, by priority
+    private final FcmMessageShaper  messageShaper;  // per-platform priority, collapse key and TTL
+    private final TaskScheduler     taskScheduler;  // backoff delays without parking a thread
+    private final Executor          callbackExecutor;  // continues sends once every message was answered
+    private final int               chunkSize;
+    private final int               maxAttempts;
+    private final Duration          initialBackoff;
+    private final Duration          maxBackoff;
+    private final Map<NotificationPriority, Guard> guards = new EnumMap<>(NotificationPriority.class);
+    private final Duration          callTimeout;
+    private final Counter           retriedTokens;
+    private final Counter           budgetExhaustedTokens;
+    private final Counter           deferredSends;
+    private final Counter           timedOutSends;
+
+    public FcmNotificationClient(FirebaseMessaging fcm, FcmSendPool sendPool, FcmMessageShaper messageShaper,
+                                 TaskScheduler taskScheduler,
+                                 @Qualifier("notificationCallbackExecutor") Executor callbackExecutor,
+                                 @Value("${protectalk.fcm.chunk.size:500}") int chunkSize,
+                                 @Value("${protectalk.fcm.retry.max-attempts:3}") int maxAttempts,
+                                 @Value("${protectalk.fcm.retry.initial-backoff:PT0.5S}") Duration initialBackoff,
+                                 @Value("${protectalk.fcm.retry.max-backoff:PT10S}") Duration maxBackoff,
+                                 @Value("${protectalk.fcm.retry.budget.ratio:0.2}") double budgetRatio,
+                                 @Value("${protectalk.fcm.retry.budget.min-per-second:5}") double budgetMinPerSecond,
+                                 @Value("${protectalk.fcm.retry.budget.max-balance:500}") double budgetMaxBalance,
+                                 @Value("${protectalk.fcm.circuit.enabled:true}") boolean circuitEnabled,
+                                 @Value("${protectalk.fcm.circuit.window-size:50}") int circuitWindowSize,
+                                 @Value("${protectalk.fcm.circuit.minimum-calls:10}") int circuitMinimumCalls,
+                                 @Value("${protectalk.fcm.circuit.failure-rate-threshold:50}") double failureRateThreshold,
+                                 @Value("${protectalk.fcm.circuit.slow-call-duration:PT2S}") Duration slowCallDuration,
+                                 @Value("${protectalk.fcm.circuit.slow-call-rate-threshold:80}") double slowCallRateThreshold,
+                                 @Value("${protectalk.fcm.circuit.open-duration:PT30S}") Duration openDuration,
+                                 @Value("${protectalk.fcm.circuit.half-open-probes:3}") int halfOpenProbes,
+                                 @Value("${protectalk.fcm.call-timeout:PT5S}") Duration callTimeout,
+                                 MeterRegistry meterRegistry) {
+        this.fcm = fcm;
+        this.sendPool = sendPool;
+        this.messageShaper = messageShaper;
+        this.taskScheduler = taskScheduler;
+        this.callbackExecutor = callbackExecutor;
+        this.chunkSize = Math.max(1, Math.min(chunkSize, MAX_MULTICAST_TOKENS));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.callTimeout = callTimeout;
+        this.retriedTokens = meterRegistry.counter("fcm.retry.tokens");
+        this.budgetExhaustedTokens = meterRegistry.counter("fcm.retry.budget_exhausted");
+        this.deferredSends = meterRegistry.counter("fcm.circuit.deferred");
+        this.timedOutSends = meterRegistry.counter("fcm.send.timeouts");
+        for (NotificationPriority priority : NotificationPriority.values()) {
+            var retryBudget = new RetryBudget(budgetRatio, budgetMinPerSecond, budgetMaxBalance);
+            var circuitBreaker = circuitEnabled
+                                 ? new CircuitBreaker(circuitWindowSize, circuitMinimumCalls, failureRateThreshold,
+                                                      slowCallDuration, slowCallRateThreshold, openDuration, halfOpenProbes)
+                                 : null;
+            var tags = Tags.of("priority", priority.name().toLowerCase(Locale.ROOT));
+            meterRegistry.gauge("fcm.retry.budget_balance", tags, retryBudget, RetryBudget::balance);
+            if (circuitBreaker != null) {
+                // 0 = closed, 1 = open, 2 = half-open
+                meterRegistry.gauge("fcm.circuit.state", tags, circuitBreaker, b -> b.state().ordinal());
+            }
+            guards.put(priority, new Guard(priority, retryBudget, circuitBreaker));
+        }
+    }
+
+    // Retry budget and circuit breaker (null when disabled) of one priority
+    private record Guard(NotificationPriority priority, RetryBudget retryBudget, CircuitBreaker circuitBreaker) {}
 
     @Override
     public NotificationResult send(OutboundMessage m) throws FirebaseMessagingException {
+        try {
+            return sendAsync(m).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof FirebaseMessagingException fme) {
+                throw fme;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<NotificationResult> sendAsync(OutboundMessage m) {
         if (m == null || m.tokens() == null || m.tokens().isEmpty())
             throw new IllegalArgumentException("No tokens provided");
         if (m.title() == null || m.body() == null)
             throw new IllegalArgumentException("Notification title or body is missing");
 
-        var notification = Notification.builder()
-                                       .setTitle(m.title())
-                                       .setBody(m.body())
-                                       .build();
-
-        // single
-        if (m.tokens().size() == 1) {
-            var msg = Message.builder()
-                             .setToken(m.tokens().get(0))
-                             .setNotification(notification)
-                             .putAllData(m.data() == null ? Map.of() : m.data())
-                             .build();
-
-            String messageId = fcm.send(msg);
-            var d = new Delivery(m.tokens().get(0), true, messageId, null, null);
-            return new NotificationResult(1, 1, 0, List.of(d), List.of());
-        }
-
-        // multicast
-        var multi = MulticastMessage.builder()
-                                    .addAllTokens(m.tokens())
-                                    .setNotification(notification)
-                                    .putAllData(m.data() == null ? Map.of() : m.data())
-                                    .build();
-
-        var resp = fcm.sendEachForMulticast(multi);
-
-        var deliveries = new ArrayList<Delivery>(m.tokens().size());
-        var invalidTokens = new ArrayList<String>();
-
-        for (int i = 0; i < m.tokens().size(); i++) {
-            var token = m.tokens().get(i);
-            var r = resp.getResponses().get(i);
-
-            if (r.isSuccessful()) {
-                deliveries.add(new Delivery(token, true, r.getMessageId(), null, null));
-            } else {
-                var ex = r.getException(); // FirebaseMessagingException
-                var code = (ex != null && ex.getMessagingErrorCode() != null)
-                           ? ex.getMessagingErrorCode().name() : null;
-                var msg  = (ex != null) ? ex.getMessage() : "Unknown FCM error";
-                deliveries.add(new Delivery(token, false, null, code, msg));
+        var guard = guardFor(m.priority());
+        if (!isAvailable(guard)) {
+            return CompletableFuture.failedFuture(deferred(guard, m.tokens().size()));
+        }
+        guard.retryBudget().deposit(m.tokens().size());
+
+        // each token gets the delivery options of its own platform
+        var shape = messageShaper.shape(m);
+        Function<String, Message> messageFor = token -> shape.builder(m.platformOf(token)).setToken(token).build();
+
+        // one chunk (also a single token), or several in flight at once
+        if (m.tokens().size() <= chunkSize) {
+            return sendChunkWithRetry(m.tokens(), messageFor, guard, new AtomicInteger());
+        }
+        return sendChunked(m, messageFor, guard);
+    }
+
+    /**
+     * One message to the topic; FCM fans it out to the subscribed devices. The result counts the expected
+     * recipients ({@code m.tokens()}) as delivered once FCM accepted the message; there are no per-token outcomes.
+     */
+    @Override
+    public CompletableFuture<NotificationResult> sendToTopicAsync(String topic, OutboundMessage m) {
+        if (topic == null || topic.isBlank())
+            throw new IllegalArgumentException("No topic provided");
+        if (m == null || m.title() == null || m.body() == null)
+            throw new IllegalArgumentException("Notification title or body is missing");
+
+        var guard = guardFor(m.priority());
+        if (!isAvailable(guard)) {
+            return CompletableFuture.failedFuture(deferred(guard, 1));
+        }
+        guard.retryBudget().deposit(1);
+
+        // members can be on any platform
+        var shape = messageShaper.shape(m);
+        Function<String, Message> messageFor = target -> shape.builder(null).setTopic(target).build();
+        int recipients = m.tokens() == null ? 0 : m.tokens().size();
+        return sendChunkWithRetry(List.of(topic), messageFor, guard, new AtomicInteger()).thenApply(result -> {
+            var delivery = result.deliveries().get(0);
+            if (!delivery.success()) {
+                log.warn("FCM topic send failed - topic: {} code: {}", topic, delivery.errorCode());
+                return new NotificationResult(recipients, 0, recipients, result.deliveries(), List.of());
+            }
+            log.info("FCM topic send: topic={}, recipients={}", topic, recipients);
+            return new NotificationResult(recipients, recipients, 0, result.deliveries(), List.of());
+        });
+    }
+
+    @Override
+    public boolean isAvailable(NotificationPriority priority) {
+        return isAvailable(guardFor(priority));
+    }
+
+    private static boolean isAvailable(Guard guard) {
+        return guard.circuitBreaker() == null || guard.circuitBreaker().isCallPermitted();
+    }
+
+    private Guard guardFor(NotificationPriority priority) {
+        return guards.get(priority == null ? NotificationPriority.HIGH : priority);
+    }
+
+    /**
+     * Split the tokens into provider-sized chunks, send them concurrently and merge the results
+     * in the original token order. A chunk that fails as a whole is reported as per-token failures;
+     * the send only fails if every chunk failed.
+     */
+    private CompletableFuture<NotificationResult> sendChunked(OutboundMessage m, Function<String, Message> messageFor,
+                                                              Guard guard) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < m.tokens().size(); from += chunkSize) {
+            chunks.add(m.tokens().subList(from, Math.min(from + chunkSize, m.tokens().size())));
+        }
+
+        var firstError = new AtomicReference<Throwable>();
+        var failedChunks = new AtomicInteger();
+        List<CompletableFuture<NotificationResult>> futures = new ArrayList<>(chunks.size());
+        for (int c = 0; c < chunks.size(); c++) {
+            var chunk = chunks.get(c);
+            int chunkNo = c + 1;
+            var attempts = new AtomicInteger();
+            futures.add(sendChunkWithRetry(chunk, messageFor, guard, attempts).exceptionally(error -> {
+                Throwable cause = unwrap(error);
+                log.warn("FCM multicast chunk {}/{} failed ({} tokens): {}",
+                         chunkNo, chunks.size(), chunk.size(), cause.getMessage());
+                firstError.compareAndSet(null, cause);
+                failedChunks.incrementAndGet();
+                return failedChunk(chunk, cause, attempts.get());
+            }));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            int total = 0;
+            int success = 0;
+            int failure = 0;
+            var deliveries = new ArrayList<Delivery>(m.tokens().size());
+            var invalidTokens = new ArrayList<String>();
+
+            for (var future : futures) {
+                NotificationResult part = future.join();
+                total += part.total();
+                success += part.success();
+                failure += part.failure();
+                deliveries.addAll(part.deliveries());
+                invalidTokens.addAll(part.invalidTokens());
+            }
+
+            if (failedChunks.get() == chunks.size()) {
+                throw new CompletionException(firstError.get());
+            }
+
+            log.info("FCM chunked multicast: total={}, success={}, failure={}, chunks={}",
+                     total, success, failure, chunks.size());
+            return new NotificationResult(total, success, failure, deliveries, invalidTokens);
+        });
+    }
+
+    /**
+     * Send one chunk, then resend only the tokens that failed with a transient error, with backoff,
+     * as long as the retry budget allows. Resent deliveries replace the originals in place.
+     */
+    private CompletableFuture<NotificationResult> sendChunkWithRetry(List<String> tokens,
+                                                                     Function<String, Message> messageFor,
+                                                                     Guard guard, AtomicInteger attempts) {
+        return withRetry(attempt -> sendChunk(tokens, messageFor, guard, attempt), tokens.size(), guard, 1, attempts)
+                .thenCompose(result -> retryFailedTokens(result, messageFor, guard));
+    }
+
+    private CompletableFuture<NotificationResult> retryFailedTokens(NotificationResult result,
+                                                                    Function<String, Message> messageFor,
+                                                                    Guard guard) {
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < result.deliveries().size(); i++) {
+            var d = result.deliveries().get(i);
+            if (!d.success() && RETRYABLE_CODES.contains(d.errorCode()) && d.attempts() < maxAttempts) {
+                positions.add(i);
+            }
+        }
+        if (positions.isEmpty()) {
+            return CompletableFuture.completedFuture(result);
+        }
+
+        int granted = guard.retryBudget().tryAcquire(positions.size());
+        if (granted < positions.size()) {
+            budgetExhaustedTokens.increment(positions.size() - granted);
+            log.warn("FCM retry budget exhausted - retrying {} of {} failed tokens", granted, positions.size());
+        }
+        if (granted == 0) {
+            return CompletableFuture.completedFuture(result);
+        }
+        var retryPositions = positions.subList(0, granted);
+        var tokens = retryPositions.stream().map(i -> result.deliveries().get(i).token()).toList();
+        int attempt = result.deliveries().get(retryPositions.get(0)).attempts() + 1;
+        retriedTokens.increment(granted);
+
+        Duration backoff = backoff(attempt - 1, null);
+        log.info("Retrying {} FCM tokens (attempt {}/{}) in {} ms", granted, attempt, maxAttempts, backoff.toMillis());
+        return delay(backoff)
+                .thenCompose(ignored -> sendChunk(tokens, messageFor, guard, attempt))
+                .exceptionally(error -> failedChunk(tokens, unwrap(error), attempt))
+                .thenCompose(retried -> retryFailedTokens(retried, messageFor, guard))
+                .thenApply(retried -> merge(result, retryPositions, retried));
+    }
+
+    /**
+     * Retry a whole request that failed with a transient error (e.g. every message of it got QUOTA_EXCEEDED).
+     * All of its tokens must fit in the retry budget; Retry-After from the provider is honored.
+     * {@code attempts} tracks the sends made, for reporting when the request finally fails.
+     */
+    private <T> CompletableFuture<T> withRetry(IntFunction<CompletableFuture<T>> call, int tokens, Guard guard,
+                                               int attempt, AtomicInteger attempts) {
+        attempts.set(attempt);
+        return call.apply(attempt).handle((value, error) -> {
+            if (error == null) {
+                return CompletableFuture.completedFuture(value);
+            }
+            Throwable cause = unwrap(error);
+            if (attempt >= maxAttempts || !RETRYABLE_CODES.contains(errorCode(cause))) {
+                return CompletableFuture.<T>failedFuture(cause);
+            }
+            if (!guard.retryBudget().tryAcquireAll(tokens)) {
+                budgetExhaustedTokens.increment(tokens);
+                log.warn("FCM retry budget exhausted - not retrying request for {} tokens: {}", tokens, cause.getMessage());
+                return CompletableFuture.<T>failedFuture(cause);
+            }
+            retriedTokens.increment(tokens);
+            Duration backoff = backoff(attempt, retryAfter(cause));
+            log.info("Retrying FCM request for {} tokens (attempt {}/{}) in {} ms - {}",
+                     tokens, attempt + 1, maxAttempts, backoff.toMillis(), errorCode(cause));
+            return delay(backoff).thenCompose(ignored -> withRetry(call, tokens, guard, attempt + 1, attempts));
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Send one message per target (token, or topic for topic sends), each its own FCM request, and collect the
+     * per-target outcomes. One message failing never fails another; the chunk only fails as a whole (and becomes
+     * eligible for a whole-request retry) when every one of its messages failed with a transient provider error.
+     * The chunk is one call for the circuit breaker, timed by its slowest request; time queued on the send pool
+     * does not count, so local saturation is not taken for a provider failure.
+     */
+    private CompletableFuture<NotificationResult> sendChunk(List<String> tokens, Function<String, Message> messageFor,
+                                                            Guard guard, int attempt) {
+        var circuitBreaker = guard.circuitBreaker();
+        var permit = circuitBreaker == null ? null : circuitBreaker.tryAcquire();
+        if (circuitBreaker != null && permit == null) {
+            return CompletableFuture.failedFuture(deferred(guard, tokens.size()));
+        }
+        List<CompletableFuture<Outcome>> outcomes = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            outcomes.add(sendOne(token, messageFor, guard.priority(), attempt));
+        }
 
+        // outcomes complete on send pool or timeout threads; continue on the application pool
+        var call = CompletableFuture.allOf(outcomes.toArray(CompletableFuture[]::new)).handleAsync((done, error) -> {
+            var deliveries = new ArrayList<Delivery>(tokens.size());
+            var invalidTokens = new ArrayList<String>();
+            int success = 0;
+            int transientFailures = 0;
+            Throwable firstError = null;
+
+            for (var future : outcomes) {
+                Outcome outcome = future.join();
+                Delivery d = outcome.delivery();
+                deliveries.add(d);
+                if (d.success()) {
+                    success++;
+                    continue;
+                }
+                firstError = firstError == null ? outcome.error() : firstError;
+                if (RETRYABLE_CODES.contains(d.errorCode())) {
+                    transientFailures++;
+                }
                 // tokens to prune
-                if ("UNREGISTERED".equals(code) || "INVALID_ARGUMENT".equals(code)) {
-                    invalidTokens.add(token);
+                if ("UNREGISTERED".equals(d.errorCode()) || "INVALID_ARGUMENT".equals(d.errorCode())) {
+                    invalidTokens.add(d.token());
                 }
             }
+
+            if (transientFailures == tokens.size()) {
+                throw new CompletionException(firstError);
+            }
+
+            log.info("FCM send: total={}, success={}, failure={}", tokens.size(), success, tokens.size() - success);
+            return new NotificationResult(tokens.size(), success, tokens.size() - success, deliveries, invalidTokens);
+        }, callbackExecutor);
+        if (circuitBreaker != null) {
+            call.whenComplete((result, error) -> {
+                long latencyNanos = outcomes.stream().mapToLong(future -> future.join().serviceNanos()).max().orElse(0);
+                circuitBreaker.record(permit, latencyNanos, isProviderFailure(result, error));
+            });
         }
+        return call;
+    }
 
-        log.info("FCM multicast: total={}, success={}, failure={}",
-                 resp.getResponses().size(), resp.getSuccessCount(),
-                 resp.getFailureCount());
+    /**
+     * One message, one FCM request on the send pool; a failure only affects this target.
+     * {@code call-timeout} starts when the request does: a message without an answer by then is reported as
+     * TIMEOUT (outcome unknown, the request may still go through) and is not resent.
+     */
+    private CompletableFuture<Outcome> sendOne(String token, Function<String, Message> messageFor,
+                                               NotificationPriority priority, int attempt) {
+        var sent = new CompletableFuture<String>();
+        var requestStarted = new AtomicLong();
+        try {
+            var message = messageFor.apply(token);
+            sendPool.execute(priority, () -> {
+                requestStarted.set(System.nanoTime());
+                sent.orTimeout(callTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                try {
+                    sent.complete(fcm.send(message));
+                } catch (Exception e) {
+                    sent.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            sent.completeExceptionally(e);
+        }
+        return sent.handle((messageId, error) -> {
+            long serviceNanos = requestStarted.get() == 0 ? 0 : System.nanoTime() - requestStarted.get();
+            if (error == null) {
+                return new Outcome(new Delivery(token, true, messageId, null, null, attempt), null, serviceNanos);
+            }
+            Throwable cause = unwrap(error);
+            if (cause instanceof TimeoutException) {
+                timedOutSends.increment();
+                String message = "No FCM response within " + callTimeout + ", outcome unknown";
+                return new Outcome(new Delivery(token, false, null, TIMEOUT_CODE, message, attempt), cause, serviceNanos);
+            }
+            String message = cause.getMessage() != null ? cause.getMessage() : "Unknown FCM error";
+            return new Outcome(new Delivery(token, false, null, errorCode(cause), message, attempt), cause, serviceNanos);
+        });
+    }
+
+    // serviceNanos: time from the start of the FCM request to its outcome, without the send pool queue
+    private record Outcome(Delivery delivery, Throwable error, long serviceNanos) {}
+
+    // The provider failed the call (transport, 5xx/quota/timeout for every token); rejected tokens do not count,
+    // nor does a full callback pool
+    private static boolean isProviderFailure(NotificationResult result, Throwable error) {
+        if (error != null) {
+            return !(unwrap(error) instanceof RejectedExecutionException);
+        }
+        return result.deliveries().stream()
+                     .allMatch(d -> !d.success() && PROVIDER_FAILURE_CODES.contains(d.errorCode()));
+    }
+
+    private DeliveryDeferredException deferred(Guard guard, int tokens) {
+        deferredSends.increment(tokens);
+        var circuitBreaker = guard.circuitBreaker();
+        return new DeliveryDeferredException("FCM circuit open - send deferred",
+                                             circuitBreaker == null ? Duration.ZERO : circuitBreaker.remainingOpen());
+    }
+
+    // Whole-chunk failure (auth, quota, transport): every token of the chunk failed with the same error
+    private static NotificationResult failedChunk(List<String> tokens, Throwable error, int attempt) {
+        var code = errorCode(error);
+        var deliveries = tokens.stream()
+                               .map(token -> new Delivery(token, false, null, code, error.getMessage(), attempt))
+                               .toList();
+        return new NotificationResult(tokens.size(), 0, tokens.size(), deliveries, List.of());
+    }
+
+    // Put resent deliveries back at their original positions and recount
+    private static NotificationResult merge(NotificationResult original, List<Integer> positions,
+                                            NotificationResult retried) {
+        var deliveries = new ArrayList<>(original.deliveries());
+        for (int i = 0; i < positions.size(); i++) {
+            deliveries.set(positions.get(i), retried.deliveries().get(i));
+        }
+        var invalidTokens = new ArrayList<>(original.invalidTokens());
+        invalidTokens.addAll(retried.invalidTokens());
+        int success = (int) deliveries.stream().filter(Delivery::success).count();
+        return new NotificationResult(deliveries.size(), success, deliveries.size() - success, deliveries, invalidTokens);
+    }
+
+    // Exponential backoff with equal jitter, never shorter than the provider's Retry-After
+    private Duration backoff(int retry, Duration retryAfter) {
+        long ceiling = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(retry - 1, 20));
+        long millis = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        if (retryAfter != null && retryAfter.toMillis() > millis) {
+            millis = Math.min(retryAfter.toMillis(), maxBackoff.toMillis());
+        }
+        return Duration.ofMillis(millis);
+    }
+
+    private CompletableFuture<Void> delay(Duration delay) {
+        var future = new CompletableFuture<Void>();
+        taskScheduler.schedule(() -> future.complete(null), Instant.now().plus(delay));
+        return future;
+    }
+
+    private static String errorCode(Throwable error) {
+        if (error instanceof FirebaseMessagingException e) {
+            return e.getMessagingErrorCode() != null ? e.getMessagingErrorCode().name()
+                                                     : e.getErrorCode() != null ? e.getErrorCode().name() : null;
+        }
+        return null;
+    }
+
+    private static Duration retryAfter(Throwable error) {
+        if (!(error instanceof FirebaseMessagingException e) || e.getHttpResponse() == null) {
+            return null;
+        }
+        Object header = e.getHttpResponse().getHeaders().get("retry-after");
+        if (header instanceof List<?> values && !values.isEmpty()) {
+            header = values.get(0);
+        }
+        try {
+            return header == null ? null : Duration.ofSeconds(Long.parseLong(header.toString().trim()));
+        } catch (NumberFormatException ignored) {
+            return null; // HTTP-date form, fall back to our own backoff
+        }
+    }
 
-        return new NotificationResult(
-            resp.getResponses().size(),
-            resp.getSuccessCount(),
-            resp.getFailureCount(),
-            deliveries,
-            invalidTokens
-        );
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 }
@@ -0,0 +1,73 @@
+package com.protectalk.messaging.fcm;
+
+import com.protectalk.messaging.NotificationPriority;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Threads for FCM message sends, taking queued sends in {@link NotificationPriority} order.
+ * - Each send is one blocking HTTP call, so {@code threads} caps concurrent FCM requests.
+ * - The notification lanes bound how many messages are admitted, but a message becomes one send per token here:
+ *   a queued CRITICAL send is started before every queued HIGH or LOW one (FIFO within a priority), so
+ *   admitted routine fan-outs cannot hold up a scam warning. Running sends are not preempted.
+ * - Exported as {@code executor.*{name=fcm-send}}.
+ */
+@Component
+public class FcmSendPool {
+
+    private static final Comparator<QueuedSend> ORDER =
+            Comparator.comparing(QueuedSend::priority).thenComparingLong(QueuedSend::sequence);
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong         sequence = new AtomicLong();
+
+    public FcmSendPool(@Value("${protectalk.fcm.send.threads:64}") int threads, MeterRegistry meterRegistry) {
+        int size = Math.max(1, threads);
+        // daemon, like the SDK's own threads, so they never hold up shutdown
+        var threadFactory = new CustomizableThreadFactory("fcm-send-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<>(),
+                                               threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(executor, "fcm-send", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Run {@code send} on a pool thread once every queued send of a higher priority has started.
+     */
+    public void execute(NotificationPriority priority, Runnable send) {
+        executor.execute(new QueuedSend(priority == null ? NotificationPriority.HIGH : priority,
+                                        sequence.getAndIncrement(), send));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    // Queue entry; only ever handed to execute(), which keeps it comparable (submit() would wrap it)
+    private record QueuedSend(NotificationPriority priority, long sequence, Runnable send)
+            implements Runnable, Comparable<QueuedSend> {
+
+        @Override
+        public void run() {
+            send.run();
+        }
+
+        @Override
+        public int compareTo(QueuedSend other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
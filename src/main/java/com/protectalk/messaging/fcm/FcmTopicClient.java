@@ -0,0 +1,105 @@
+package com.protectalk.messaging.fcm;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.TopicManagementResponse;
+import com.protectalk.device.service.InvalidTokenPruner;
+import com.protectalk.messaging.TopicSubscriptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/**
+ * FCM topic management (Instance ID batchAdd / batchRemove), at most 1000 tokens per call.
+ * Tokens FCM reports as dead go to the {@link InvalidTokenPruner}; a topic-routed user may never get a per-token
+ * send that would report them.
+ */
+@Slf4j
+@Component
+public class FcmTopicClient implements TopicSubscriptions {
+
+    private static final int MAX_TOKENS_PER_CALL = 1000;
+
+    // Per-token reasons that mean the token itself is dead; it is queued for pruning, not a sync failure
+    private static final Set<String> INVALID_TOKEN_REASONS = Set.of("invalid-argument", "registration-token-not-registered");
+
+    private final FirebaseMessaging                  fcm;
+    private final ObjectProvider<InvalidTokenPruner> invalidTokenPruner;  // lazy: the pruner's dependencies lead back here
+
+    public FcmTopicClient(FirebaseMessaging fcm, ObjectProvider<InvalidTokenPruner> invalidTokenPruner) {
+        this.fcm = fcm;
+        this.invalidTokenPruner = invalidTokenPruner;
+    }
+
+    @Override
+    public CompletableFuture<Void> subscribe(String topic, List<String> tokens) {
+        return manage("subscribe", topic, tokens, fcm::subscribeToTopicAsync);
+    }
+
+    @Override
+    public CompletableFuture<Void> unsubscribe(String topic, List<String> tokens) {
+        return manage("unsubscribe", topic, tokens, fcm::unsubscribeFromTopicAsync);
+    }
+
+    private CompletableFuture<Void> manage(String operation, String topic, List<String> tokens,
+                                           BiFunction<List<String>, String, ApiFuture<TopicManagementResponse>> call) {
+        if (tokens == null || tokens.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+        for (int from = 0; from < tokens.size(); from += MAX_TOKENS_PER_CALL) {
+            var chunk = tokens.subList(from, Math.min(from + MAX_TOKENS_PER_CALL, tokens.size()));
+            calls.add(toCompletableFuture(call.apply(chunk, topic))
+                              .thenAccept(response -> check(operation, topic, chunk, response)));
+        }
+        return CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new));
+    }
+
+    private void check(String operation, String topic, List<String> chunk, TopicManagementResponse response) {
+        var failed = new ArrayList<TopicManagementResponse.Error>();
+        var invalidTokens = new ArrayList<String>();
+        for (var error : response.getErrors()) {
+            if (INVALID_TOKEN_REASONS.contains(error.getReason())) {
+                invalidTokens.add(chunk.get(error.getIndex()));
+            } else {
+                failed.add(error);
+            }
+        }
+        if (response.getFailureCount() > 0) {
+            log.debug("FCM topic {} - topic: {} success: {} failure: {} invalid tokens: {}", operation, topic,
+                      response.getSuccessCount(), response.getFailureCount(), invalidTokens.size());
+        }
+        if (!invalidTokens.isEmpty()) {
+            invalidTokenPruner.getObject().enqueue(invalidTokens);
+        }
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("FCM topic %s failed for %d tokens, first reason: %s"
+                                                    .formatted(operation, failed.size(), failed.get(0).getReason()));
+        }
+    }
+
+    private static <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> apiFuture) {
+        var future = new CompletableFuture<T>();
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<>() {
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+}
@@ -0,0 +1,72 @@
+package com.protectalk.messaging.fcm;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Global cap on FCM retries, so a provider brownout does not multiply our own send volume.
+ * - Every first-attempt token deposits {@code ratio} retry credits; every retried token costs one.
+ * - A small floor ({@code minPerSecond}) keeps retries possible when traffic is low.
+ * - The balance never exceeds {@code maxBalance}, which bounds a retry burst after a quiet period.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double refillPerNano;
+    private final double maxBalance;
+    private final LongSupplier nanoTime;
+
+    private double balance;
+    private long   lastRefill;
+
+    public RetryBudget(double ratio, double minPerSecond, double maxBalance) {
+        this(ratio, minPerSecond, maxBalance, System::nanoTime);
+    }
+
+    RetryBudget(double ratio, double minPerSecond, double maxBalance, LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+        this.ratio = ratio;
+        this.refillPerNano = minPerSecond / 1_000_000_000d;
+        this.maxBalance = maxBalance;
+        this.balance = maxBalance;
+        this.lastRefill = nanoTime.getAsLong();
+    }
+
+    public synchronized void deposit(int firstAttempts) {
+        refill();
+        balance = Math.min(maxBalance, balance + firstAttempts * ratio);
+    }
+
+    /**
+     * Take up to {@code requested} retry credits.
+     * @return the number granted (0..requested)
+     */
+    public synchronized int tryAcquire(int requested) {
+        refill();
+        int granted = (int) Math.min(requested, Math.floor(balance));
+        balance -= granted;
+        return granted;
+    }
+
+    /**
+     * Take exactly {@code requested} credits or none.
+     */
+    public synchronized boolean tryAcquireAll(int requested) {
+        refill();
+        if (balance < requested) {
+            return false;
+        }
+        balance -= requested;
+        return true;
+    }
+
+    public synchronized double balance() {
+        refill();
+        return balance;
+    }
+
+    private void refill() {
+        long now = nanoTime.getAsLong();
+        balance = Math.min(maxBalance, balance + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,271 @@
+package com.protectalk.messaging.fcm.local;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stand-in for the FCM v1 send endpoint, for load and fault testing without Firebase (profile {@code local-fcm}).
+ * {@link com.protectalk.config.FirebaseConfig} points the Admin SDK at it, so everything above the SDK runs unchanged.
+ * - POST /v1/projects/{project}/messages:send answers like FCM after a log-normal latency given by
+ *   {@code latency.median} and {@code latency.p99}.
+ * - {@code errors} is a mix such as {@code UNREGISTERED:0.02,UNAVAILABLE:0.01,QUOTA_EXCEEDED:0.005}; tokens starting
+ *   with an error code in lower case (e.g. {@code unregistered-42}) always fail with it.
+ * - GET /recorded returns per-outcome counts and the last {@code record-size} requests; DELETE /recorded resets them.
+ */
+@Slf4j
+@Component
+@Profile("local-fcm")
+public class LocalFcmServer {
+
+    private static final double Z_99 = 2.3263;
+
+    // Error codes FCM reports in FcmError details, with the HTTP status and canonical status it pairs them with
+    private enum FcmError {
+        UNREGISTERED(404, "NOT_FOUND"),
+        INVALID_ARGUMENT(400, "INVALID_ARGUMENT"),
+        SENDER_ID_MISMATCH(403, "PERMISSION_DENIED"),
+        QUOTA_EXCEEDED(429, "RESOURCE_EXHAUSTED"),
+        UNAVAILABLE(503, "UNAVAILABLE"),
+        INTERNAL(500, "INTERNAL");
+
+        final int    httpStatus;
+        final String status;
+
+        FcmError(int httpStatus, String status) {
+            this.httpStatus = httpStatus;
+            this.status = status;
+        }
+    }
+
+    private record RecordedRequest(Instant receivedAt, String token, String outcome, long latencyMillis) {}
+
+    private final ObjectMapper          objectMapper;
+    private final String                bindAddress;
+    private final int                   port;
+    private final int                   threads;
+    private final Duration              median;
+    private final double                sigma;
+    private final Map<FcmError, Double> errorRates;
+    private final Duration              retryAfter;
+    private final int                   recordSize;
+
+    private final Deque<RecordedRequest> recorded   = new ArrayDeque<>();
+    private final Map<String, LongAdder> counts     = new ConcurrentHashMap<>();
+    private final AtomicLong             messageIds = new AtomicLong();
+
+    private HttpServer      server;
+    private ExecutorService executor;
+
+    public LocalFcmServer(ObjectMapper objectMapper,
+                          @Value("${protectalk.fcm.local.bind-address:127.0.0.1}") String bindAddress,
+                          @Value("${protectalk.fcm.local.port:9099}") int port,
+                          @Value("${protectalk.fcm.local.threads:256}") int threads,
+                          @Value("${protectalk.fcm.local.latency.median:PT0.03S}") Duration median,
+                          @Value("${protectalk.fcm.local.latency.p99:PT0.2S}") Duration p99,
+                          @Value("${protectalk.fcm.local.errors:}") String errors,
+                          @Value("${protectalk.fcm.local.retry-after:PT1S}") Duration retryAfter,
+                          @Value("${protectalk.fcm.local.record-size:1000}") int recordSize) {
+        this.objectMapper = objectMapper;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.threads = threads;
+        this.median = median;
+        this.sigma = median.isZero() || p99.compareTo(median) <= 0
+                     ? 0 : Math.log((double) p99.toNanos() / median.toNanos()) / Z_99;
+        this.errorRates = parseErrors(errors);
+        this.retryAfter = retryAfter;
+        this.recordSize = recordSize;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "local-fcm");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.createContext("/v1/projects/", this::handleSend);
+        server.createContext("/recorded", this::handleRecorded);
+        server.setExecutor(executor);
+        server.start();
+        log.info("Local FCM stand-in listening on {}:{} - latency median: {} sigma: {} errors: {}",
+                 bindAddress, port, median, String.format("%.2f", sigma), errorRates);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void handleSend(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod()) || !exchange.getRequestURI().getPath().endsWith("/messages:send")) {
+                respond(exchange, 404, "{}");
+                return;
+            }
+            long started = System.nanoTime();
+            JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+            JsonNode tokenNode = body.path("message").path("token");
+            String token = tokenNode.isTextual() ? tokenNode.textValue() : null;
+            String project = exchange.getRequestURI().getPath().split("/")[3];
+
+            sleep(sampleLatency());
+            FcmError error = pickError(token);
+            if (error == null) {
+                String name = "projects/%s/messages/0:%d".formatted(project, messageIds.incrementAndGet());
+                respond(exchange, 200, objectMapper.writeValueAsString(Map.of("name", name)));
+            } else {
+                if (error == FcmError.QUOTA_EXCEEDED || error == FcmError.UNAVAILABLE) {
+                    exchange.getResponseHeaders().add("Retry-After", String.valueOf(retryAfter.toSeconds()));
+                }
+                respond(exchange, error.httpStatus, errorBody(error));
+            }
+            record(token, error == null ? "OK" : error.name(), started);
+        } catch (Exception e) {
+            log.warn("Local FCM stand-in failed to handle request: {}", e.getMessage());
+            respond(exchange, 500, "{}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleRecorded(HttpExchange exchange) throws IOException {
+        try {
+            if ("DELETE".equals(exchange.getRequestMethod())) {
+                synchronized (recorded) {
+                    recorded.clear();
+                }
+                counts.clear();
+                respond(exchange, 204, null);
+                return;
+            }
+            Map<String, Long> totals = new LinkedHashMap<>();
+            counts.forEach((outcome, count) -> totals.put(outcome, count.sum()));
+            List<RecordedRequest> requests;
+            synchronized (recorded) {
+                requests = new ArrayList<>(recorded);
+            }
+            respond(exchange, 200, objectMapper.writeValueAsString(Map.of("counts", totals, "requests", requests)));
+        } catch (Exception e) {
+            log.warn("Local FCM stand-in failed to report recorded requests: {}", e.getMessage());
+            respond(exchange, 500, "{}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String errorBody(FcmError error) throws IOException {
+        var details = Map.of("@type", "type.googleapis.com/google.firebase.fcm.v1.FcmError",
+                             "errorCode", error.name());
+        var body = Map.of("code", error.httpStatus,
+                          "message", "Local FCM stand-in: " + error.name(),
+                          "status", error.status,
+                          "details", List.of(details));
+        return objectMapper.writeValueAsString(Map.of("error", body));
+    }
+
+    private FcmError pickError(String token) {
+        if (token != null) {
+            for (FcmError error : FcmError.values()) {
+                if (token.startsWith(error.name().toLowerCase(Locale.ROOT))) {
+                    return error;
+                }
+            }
+        }
+        double roll = ThreadLocalRandom.current().nextDouble();
+        for (var entry : errorRates.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private Duration sampleLatency() {
+        if (median.isZero() || sigma == 0) {
+            return median;
+        }
+        double factor = Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+        return Duration.ofNanos((long) (median.toNanos() * factor));
+    }
+
+    private void record(String token, String outcome, long started) {
+        counts.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        var request = new RecordedRequest(Instant.now(), token, outcome, (System.nanoTime() - started) / 1_000_000);
+        synchronized (recorded) {
+            if (recorded.size() >= recordSize) {
+                recorded.removeFirst();
+            }
+            recorded.addLast(request);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleep(Duration latency) {
+        try {
+            Thread.sleep(latency.toMillis(), (int) (latency.toNanos() % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // "UNREGISTERED:0.02,UNAVAILABLE:0.01" -> ordered map of error rates
+    private static Map<FcmError, Double> parseErrors(String errors) {
+        Map<FcmError, Double> rates = new LinkedHashMap<>();
+        if (errors == null || errors.isBlank()) {
+            return rates;
+        }
+        for (String entry : errors.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid protectalk.fcm.local.errors entry: " + entry);
+            }
+            rates.put(FcmError.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), Double.parseDouble(parts[1].trim()));
+        }
+        return rates;
+    }
+}
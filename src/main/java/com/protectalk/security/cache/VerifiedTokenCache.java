@@ -0,0 +1,99 @@
+package com.protectalk.security.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.protectalk.security.model.FirebasePrincipal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Bounded cache of already verified Firebase ID tokens.
+ * - Keyed by SHA-256 of the raw token, so tokens are never held in memory as-is.
+ * - Each entry expires at the token's own {@code exp}, capped by {@code max-ttl}
+ *   (the cap bounds how long a revoked token can still be accepted).
+ * - Hit/miss/eviction counters are published as {@code cache.*{cache=auth.token}}.
+ */
+@Slf4j
+@Component
+public class VerifiedTokenCache {
+
+    private final Cache<String, CachedPrincipal> cache;
+    private final Duration                       maxTtl;
+
+    public VerifiedTokenCache(@Value("${protectalk.auth.token-cache.max-size:10000}") long maxSize,
+                              @Value("${protectalk.auth.token-cache.max-ttl:PT5M}") Duration maxTtl,
+                              MeterRegistry meterRegistry) {
+        this.maxTtl = maxTtl;
+        this.cache = Caffeine.newBuilder()
+                             .maximumSize(maxSize)
+                             .expireAfter(new TokenExpiry())
+                             .recordStats()
+                             .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "auth.token");
+        log.info("Verified token cache initialized - maxSize: {} maxTtl: {}", maxSize, maxTtl);
+    }
+
+    public Optional<FirebasePrincipal> get(String idToken) {
+        CachedPrincipal cached = cache.getIfPresent(digest(idToken));
+        return cached == null ? Optional.empty() : Optional.of(cached.principal());
+    }
+
+    /**
+     * Remember a verified principal until {@code expiresAt} (the token's {@code exp} claim).
+     * Tokens that are already expired are not cached.
+     */
+    public void put(String idToken, FirebasePrincipal principal, Instant expiresAt) {
+        if (expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        cache.put(digest(idToken), new CachedPrincipal(principal, expiresAt));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    // --- helpers ---
+
+    static String digest(String idToken) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(idToken.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record CachedPrincipal(FirebasePrincipal principal, Instant expiresAt) {}
+
+    private final class TokenExpiry implements Expiry<String, CachedPrincipal> {
+        @Override
+        public long expireAfterCreate(String key, CachedPrincipal value, long currentTime) {
+            Duration untilExp = Duration.between(Instant.now(), value.expiresAt());
+            Duration ttl = untilExp.compareTo(maxTtl) < 0 ? untilExp : maxTtl;
+            return Math.max(0, ttl.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedPrincipal value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedPrincipal value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
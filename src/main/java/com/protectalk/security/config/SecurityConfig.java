@@ -1,6 +1,8 @@
 package com.protectalk.security.config;
 
+import com.protectalk.security.filter.AdmissionControlFilter;
 import com.protectalk.security.filter.FirebaseAuthFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -11,9 +13,11 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @Configuration
 public class SecurityConfig {
 
-    private final FirebaseAuthFilter firebaseAuthFilter;
+    private final AdmissionControlFilter admissionControlFilter;
+    private final FirebaseAuthFilter     firebaseAuthFilter;
 
-    public SecurityConfig(FirebaseAuthFilter firebaseAuthFilter) {
+    public SecurityConfig(AdmissionControlFilter admissionControlFilter, FirebaseAuthFilter firebaseAuthFilter) {
+        this.admissionControlFilter = admissionControlFilter;
         this.firebaseAuthFilter = firebaseAuthFilter;
     }
 
@@ -23,9 +27,13 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/public/**").permitAll()
+                        // async re-dispatch only writes the result of a request already authorized on REQUEST
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(firebaseAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(firebaseAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // cheap rate limit + token shape check before any verification work
+                .addFilterBefore(admissionControlFilter, FirebaseAuthFilter.class);
 
         return http.build();
     }
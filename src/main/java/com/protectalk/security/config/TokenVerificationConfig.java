@@ -0,0 +1,97 @@
+package com.protectalk.security.config;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.protectalk.security.token.FirebaseAdminTokenVerifier;
+import com.protectalk.security.token.GooglePublicKeySource;
+import com.protectalk.security.token.OfflineTokenVerifier;
+import com.protectalk.security.token.RevocationTable;
+import com.protectalk.security.token.TokenVerifier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Selects how ID tokens are verified ({@code protectalk.auth.verification}):
+ * - remote (default): Admin SDK with checkRevoked=true, one Firebase call per cache miss
+ * - offline: local RS256 check against cached Google keys + background revocation sweep of active users;
+ *   needs {@code protectalk.auth.offline.project-id} (the token audience). The key refresh and the sweep call
+ *   Google / Firebase, so they run on their own scheduler, never on the shared one of the flushes and the outbox.
+ */
+@Slf4j
+@Configuration
+public class TokenVerificationConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "protectalk.auth.verification", havingValue = "remote", matchIfMissing = true)
+    public TokenVerifier firebaseAdminTokenVerifier(FirebaseAuth firebaseAuth) {
+        log.info("ID token verification mode: remote");
+        return new FirebaseAdminTokenVerifier(firebaseAuth);
+    }
+
+    /**
+     * Not a {@link TaskScheduler} bean: one would replace Boot's shared scheduler for everyone else.
+     */
+    static final class TokenMaintenanceScheduler implements DisposableBean {
+
+        private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+        TokenMaintenanceScheduler() {
+            scheduler.setPoolSize(2);  // key refresh and revocation sweep never wait for each other
+            scheduler.setThreadNamePrefix("token-maintenance-");
+            scheduler.setDaemon(true);
+            scheduler.initialize();
+        }
+
+        @Override
+        public void destroy() {
+            scheduler.shutdown();
+        }
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "protectalk.auth.verification", havingValue = "offline")
+    TokenMaintenanceScheduler tokenMaintenanceScheduler() {
+        return new TokenMaintenanceScheduler();
+    }
+
+    @Bean(initMethod = "start")
+    @ConditionalOnProperty(name = "protectalk.auth.verification", havingValue = "offline")
+    public GooglePublicKeySource googlePublicKeySource(
+            TokenMaintenanceScheduler maintenance,
+            @Value("${protectalk.auth.offline.certs-url:" + GooglePublicKeySource.DEFAULT_CERTS_URL + "}") String certsUrl,
+            @Value("${protectalk.auth.offline.key-refresh-ahead:PT5M}") Duration refreshAhead,
+            @Value("${protectalk.auth.offline.key-retry-delay:PT30S}") Duration retryDelay) {
+        return new GooglePublicKeySource(certsUrl, maintenance.scheduler, refreshAhead, retryDelay);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "protectalk.auth.verification", havingValue = "offline")
+    public RevocationTable revocationTable(
+            FirebaseAuth firebaseAuth, TokenMaintenanceScheduler maintenance,
+            @Value("${protectalk.auth.offline.revocation-sweep-interval:PT1M}") Duration sweepInterval,
+            @Value("${protectalk.auth.offline.active-user-ttl:PT1H}") Duration activeUserTtl,
+            @Value("${protectalk.auth.offline.max-active-users:100000}") long maxActiveUsers) {
+        RevocationTable table = new RevocationTable(firebaseAuth, activeUserTtl, maxActiveUsers);
+        maintenance.scheduler.scheduleWithFixedDelay(table::sweep, Instant.now(), sweepInterval);
+        return table;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "protectalk.auth.verification", havingValue = "offline")
+    public TokenVerifier offlineTokenVerifier(
+            GooglePublicKeySource keys, RevocationTable revocations,
+            @Value("${protectalk.auth.offline.project-id:}") String projectId,
+            @Value("${protectalk.auth.offline.clock-skew:PT1M}") Duration clockSkew) {
+        log.info("ID token verification mode: offline - project: {}", projectId);
+        return new OfflineTokenVerifier(projectId, keys, revocations, Clock.systemUTC(), clockSkew);
+    }
+}
@@ -0,0 +1,159 @@
+package com.protectalk.security.filter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.protectalk.security.ratelimit.StripedRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * Cheap admission stage that runs before {@link FirebaseAuthFilter}.
+ * - Rate limits Bearer requests per token and, when {@code ip.enabled}, per client IP (striped token buckets).
+ *   The client IP is what the servlet container resolved from trusted proxies' X-Forwarded-For
+ *   ({@code server.forward-headers-strategy}); without that, every client behind a proxy shares one bucket.
+ * - Rejects tokens that cannot be a Firebase ID token (shape, alphabet, size, JOSE header)
+ *   before any signature check or Firebase round trip happens.
+ * Requests without a Bearer header pass through untouched.
+ */
+@Slf4j
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int          SC_TOO_MANY_REQUESTS = 429;
+
+    // Characters of the signature segment used as the per-token bucket key
+    private static final int TOKEN_KEY_LENGTH = 24;
+
+    private final boolean            enabled;
+    private final int                maxTokenLength;
+    private final boolean            ipEnabled;
+    private final StripedRateLimiter perIp;
+    private final StripedRateLimiter perToken;
+    private final Counter            rejectedMalformed;
+    private final Counter            rejectedIpRate;
+    private final Counter            rejectedTokenRate;
+
+    public AdmissionControlFilter(@Value("${protectalk.auth.admission.enabled:true}") boolean enabled,
+                                  @Value("${protectalk.auth.admission.max-token-length:4096}") int maxTokenLength,
+                                  @Value("${protectalk.auth.admission.stripes:4096}") int stripes,
+                                  @Value("${protectalk.auth.admission.ip.enabled:false}") boolean ipEnabled,
+                                  @Value("${protectalk.auth.admission.ip.permits-per-second:50}") double ipRate,
+                                  @Value("${protectalk.auth.admission.ip.burst:100}") double ipBurst,
+                                  @Value("${protectalk.auth.admission.token.permits-per-second:20}") double tokenRate,
+                                  @Value("${protectalk.auth.admission.token.burst:40}") double tokenBurst,
+                                  MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxTokenLength = maxTokenLength;
+        this.ipEnabled = ipEnabled;
+        this.perIp = new StripedRateLimiter(stripes, ipRate, ipBurst);
+        this.perToken = new StripedRateLimiter(stripes, tokenRate, tokenBurst);
+        this.rejectedMalformed = meterRegistry.counter("auth.admission.rejected", "reason", "malformed");
+        this.rejectedIpRate = meterRegistry.counter("auth.admission.rejected", "reason", "ip_rate");
+        this.rejectedTokenRate = meterRegistry.counter("auth.admission.rejected", "reason", "token_rate");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain)
+            throws IOException, ServletException {
+
+        String header = request.getHeader("Authorization");
+        if (!enabled || header == null || !header.startsWith("Bearer ")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String clientIp = request.getRemoteAddr();
+        if (ipEnabled && !perIp.tryAcquire(clientIp)) {
+            rejectedIpRate.increment();
+            log.debug("Admission rejected - IP rate limit exceeded for: {}", clientIp);
+            reject(response, SC_TOO_MANY_REQUESTS, "Too many requests");
+            return;
+        }
+
+        String idToken = header.substring(7);
+        int signatureStart = structurallyValidSignatureStart(idToken);
+        if (signatureStart < 0) {
+            rejectedMalformed.increment();
+            log.debug("Admission rejected - malformed bearer token from: {}", clientIp);
+            reject(response, HttpServletResponse.SC_UNAUTHORIZED, "Malformed bearer token");
+            return;
+        }
+
+        String tokenKey = idToken.substring(signatureStart, Math.min(idToken.length(), signatureStart + TOKEN_KEY_LENGTH));
+        if (!perToken.tryAcquire(tokenKey)) {
+            rejectedTokenRate.increment();
+            log.debug("Admission rejected - token rate limit exceeded from: {}", clientIp);
+            reject(response, SC_TOO_MANY_REQUESTS, "Too many requests");
+            return;
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Returns the index where the signature segment starts, or -1 if the token is not a plausible RS256 JWT.
+     */
+    private int structurallyValidSignatureStart(String token) {
+        int length = token.length();
+        if (length == 0 || length > maxTokenLength) {
+            return -1;
+        }
+
+        int firstDot = -1;
+        int secondDot = -1;
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                if (firstDot < 0) {
+                    firstDot = i;
+                } else if (secondDot < 0) {
+                    secondDot = i;
+                } else {
+                    return -1;
+                }
+            } else if (!isBase64Url(c)) {
+                return -1;
+            }
+        }
+        if (firstDot <= 0 || secondDot <= firstDot + 1 || secondDot == length - 1) {
+            return -1;
+        }
+
+        try {
+            JsonNode jose = JSON.readTree(Base64.getUrlDecoder().decode(token.substring(0, firstDot)));
+            if (!"RS256".equals(jose.path("alg").asText()) || !jose.path("kid").isTextual()) {
+                return -1;
+            }
+        } catch (Exception e) {
+            return -1;
+        }
+        return secondDot + 1;
+    }
+
+    private static boolean isBase64Url(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+
+    private static void reject(HttpServletResponse response, int status, String error) throws IOException {
+        response.setStatus(status);
+        if (status == SC_TOO_MANY_REQUESTS) {
+            response.setHeader("Retry-After", "1");
+        }
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\": \"" + error + "\"}");
+    }
+}
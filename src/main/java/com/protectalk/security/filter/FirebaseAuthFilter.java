@@ -1,10 +1,9 @@
 package com.protectalk.security.filter;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.FirebaseToken;
-import com.google.firebase.auth.UserRecord;
+import com.protectalk.security.cache.VerifiedTokenCache;
 import com.protectalk.security.model.FirebasePrincipal;
+import com.protectalk.security.token.TokenVerificationException;
+import com.protectalk.security.token.TokenVerifier;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -17,15 +16,18 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.time.Instant;
 import java.util.*;
 
 @Component
 public class FirebaseAuthFilter extends OncePerRequestFilter {
 
-    private final FirebaseAuth firebaseAuth;
+    private final TokenVerifier      tokenVerifier;
+    private final VerifiedTokenCache tokenCache;
 
-    public FirebaseAuthFilter(FirebaseAuth firebaseAuth) {
-        this.firebaseAuth = firebaseAuth;
+    public FirebaseAuthFilter(TokenVerifier tokenVerifier, VerifiedTokenCache tokenCache) {
+        this.tokenVerifier = tokenVerifier;
+        this.tokenCache = tokenCache;
     }
 
     @Override
@@ -38,30 +40,27 @@ public class FirebaseAuthFilter extends OncePerRequestFilter {
         if (header != null && header.startsWith("Bearer ")) {
             String idToken = header.substring(7);
             try {
-                FirebaseToken decoded = firebaseAuth.verifyIdToken(idToken, true);
-                UserRecord userRecord = firebaseAuth.getUser(decoded.getUid());
-
-                FirebasePrincipal principal = new FirebasePrincipal(
-                        decoded.getUid(),
-                        userRecord != null ? userRecord.getEmail() : decoded.getEmail(),
-                        decoded.getClaims()
-                );
+                // Clients reuse the same token for up to an hour - skip the remote check when already verified
+                FirebasePrincipal principal = tokenCache.get(idToken).orElse(null);
+                if (principal == null) {
+                    principal = tokenVerifier.verify(idToken);
+                    tokenCache.put(idToken, principal, expiresAt(principal.claims()));
+                }
 
-                var authorities = authoritiesFromClaims(decoded.getClaims());
+                var authorities = authoritiesFromClaims(principal.claims());
 
                 var auth = new UsernamePasswordAuthenticationToken(
                         principal, null, authorities);
 
                 SecurityContextHolder.getContext().setAuthentication(auth);
 
-            } catch (FirebaseAuthException e) {
+            } catch (TokenVerificationException e) {
                 System.err.println("Firebase token verification failed: " + e.getMessage());
-                System.err.println("Error code: " + e.getAuthErrorCode());
-                System.err.println("Error details: " + e.getErrorCode());
+                System.err.println("Error code: " + e.getErrorCode());
 
                 // Provide specific guidance based on error type
-                if (e.getAuthErrorCode() != null) {
-                    switch (e.getAuthErrorCode().toString()) {
+                if (e.getErrorCode() != null) {
+                    switch (e.getErrorCode()) {
                         case "INVALID_ARGUMENT":
                             System.err.println("HINT: Token format is invalid. Check if you're sending the correct Firebase ID token.");
                             break;
@@ -94,6 +93,11 @@ public class FirebaseAuthFilter extends OncePerRequestFilter {
         chain.doFilter(request, response);
     }
 
+    private static Instant expiresAt(Map<String, Object> claims) {
+        Object exp = claims.get("exp");
+        return exp instanceof Number n ? Instant.ofEpochSecond(n.longValue()) : null;
+    }
+
     private Collection<GrantedAuthority> authoritiesFromClaims(Map<String, Object> claims) {
         List<GrantedAuthority> list = new ArrayList<>();
         Object role = claims.get("role");
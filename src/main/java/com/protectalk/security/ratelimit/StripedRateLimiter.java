@@ -0,0 +1,63 @@
+package com.protectalk.security.ratelimit;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Fixed-size array of token buckets; a key is mapped to a stripe by its hash.
+ * - Memory is bounded by the stripe count regardless of how many distinct keys show up.
+ * - Keys that collide share a bucket, which only ever makes the limit stricter.
+ * - Each stripe has its own monitor, so unrelated clients rarely contend.
+ */
+public class StripedRateLimiter {
+
+    private final Bucket[] stripes;
+    private final int      mask;
+    private final double   capacity;
+    private final double   refillPerNano;
+    private final LongSupplier nanoTime;
+
+    public StripedRateLimiter(int stripeCount, double permitsPerSecond, double burst) {
+        this(stripeCount, permitsPerSecond, burst, System::nanoTime);
+    }
+
+    StripedRateLimiter(int stripeCount, double permitsPerSecond, double burst, LongSupplier nanoTime) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new Bucket[size];
+        this.mask = size - 1;
+        this.capacity = burst;
+        this.refillPerNano = permitsPerSecond / 1_000_000_000d;
+        this.nanoTime = nanoTime;
+        long now = nanoTime.getAsLong();
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Bucket(burst, now);
+        }
+    }
+
+    /**
+     * Take one permit for {@code key}; returns false when its bucket is empty.
+     */
+    public boolean tryAcquire(CharSequence key) {
+        int h = key.hashCode();
+        Bucket bucket = stripes[(h ^ (h >>> 16)) & mask];
+        synchronized (bucket) {
+            long now = nanoTime.getAsLong();
+            bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.lastRefill) * refillPerNano);
+            bucket.lastRefill = now;
+            if (bucket.tokens < 1d) {
+                return false;
+            }
+            bucket.tokens -= 1d;
+            return true;
+        }
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long   lastRefill;
+
+        private Bucket(double tokens, long lastRefill) {
+            this.tokens = tokens;
+            this.lastRefill = lastRefill;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.protectalk.security.token;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.FirebaseToken;
+import com.protectalk.security.model.FirebasePrincipal;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Default verifier: delegates to the Admin SDK with {@code checkRevoked=true}
+ * (one remote Firebase call per verification).
+ */
+@RequiredArgsConstructor
+public class FirebaseAdminTokenVerifier implements TokenVerifier {
+
+    private final FirebaseAuth firebaseAuth;
+
+    @Override
+    public FirebasePrincipal verify(String idToken) throws TokenVerificationException {
+        try {
+            FirebaseToken decoded = firebaseAuth.verifyIdToken(idToken, true);
+            return new FirebasePrincipal(decoded.getUid(), decoded.getEmail(), decoded.getClaims());
+        } catch (FirebaseAuthException e) {
+            String code = e.getAuthErrorCode() != null ? e.getAuthErrorCode().name()
+                                                       : TokenVerificationException.INVALID_ID_TOKEN;
+            throw new TokenVerificationException(code, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.protectalk.security.token;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.security.cert.CertificateFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Google's Firebase ID token signing keys, held in memory and refreshed in the background.
+ * - The next refresh is scheduled {@code refreshAhead} before the Cache-Control max-age runs out.
+ * - A failed or interrupted refresh keeps the current keys and retries after {@code retryDelay}; refreshing only
+ *   stops once the scheduler shuts down.
+ */
+@Slf4j
+public class GooglePublicKeySource implements PublicKeySource {
+
+    public static final String DEFAULT_CERTS_URL =
+            "https://www.googleapis.com/robot/v1/metadata/x509/securetoken@system.gserviceaccount.com";
+
+    private static final Pattern      MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final ObjectMapper JSON    = new ObjectMapper();
+
+    private final URI           certsUrl;
+    private final TaskScheduler scheduler;
+    private final Duration      refreshAhead;
+    private final Duration      retryDelay;
+    private final HttpClient    http;
+
+    private volatile Map<String, PublicKey> keys = Map.of();
+
+    public GooglePublicKeySource(String certsUrl, TaskScheduler scheduler, Duration refreshAhead, Duration retryDelay) {
+        this.certsUrl = URI.create(certsUrl);
+        this.scheduler = scheduler;
+        this.refreshAhead = refreshAhead;
+        this.retryDelay = retryDelay;
+        this.http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    @Override
+    public PublicKey get(String keyId) {
+        return keys.get(keyId);
+    }
+
+    /**
+     * Load the keys once synchronously, then keep them fresh on the scheduler.
+     */
+    public void start() {
+        refresh();
+    }
+
+    private void refresh() {
+        Duration nextRefresh;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(certsUrl).timeout(Duration.ofSeconds(10)).GET().build();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Unexpected status " + response.statusCode() + " from " + certsUrl);
+            }
+
+            keys = parseCertificates(response.body());
+            Duration maxAge = response.headers().firstValue("Cache-Control")
+                                      .map(GooglePublicKeySource::maxAge)
+                                      .orElse(Duration.ofHours(1));
+            nextRefresh = maxAge.minus(refreshAhead);
+            if (nextRefresh.compareTo(retryDelay) < 0) {
+                nextRefresh = retryDelay;
+            }
+            log.info("Refreshed Firebase signing keys - kids: {} next refresh in: {}", keys.keySet(), nextRefresh);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            nextRefresh = retryDelay;
+            log.warn("Firebase signing key refresh interrupted, keeping {} cached keys - retry in: {}",
+                     keys.size(), nextRefresh);
+        } catch (Exception e) {
+            nextRefresh = retryDelay;
+            log.error("Failed to refresh Firebase signing keys, keeping {} cached keys - retry in: {}",
+                      keys.size(), nextRefresh, e);
+        }
+        try {
+            scheduler.schedule(this::refresh, Instant.now().plus(nextRefresh));
+        } catch (TaskRejectedException e) {
+            log.info("Scheduler shutting down, Firebase signing key refresh stopped");
+        }
+    }
+
+    private static Map<String, PublicKey> parseCertificates(String body) throws Exception {
+        Map<String, String> pems = JSON.readValue(body, new TypeReference<Map<String, String>>() {});
+        CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        Map<String, PublicKey> parsed = new HashMap<>();
+        for (var entry : pems.entrySet()) {
+            var cert = factory.generateCertificate(
+                    new ByteArrayInputStream(entry.getValue().getBytes(StandardCharsets.US_ASCII)));
+            parsed.put(entry.getKey(), cert.getPublicKey());
+        }
+        return Map.copyOf(parsed);
+    }
+
+    private static Duration maxAge(String cacheControl) {
+        Matcher m = MAX_AGE.matcher(cacheControl);
+        return m.find() ? Duration.ofSeconds(Long.parseLong(m.group(1))) : Duration.ofHours(1);
+    }
+}
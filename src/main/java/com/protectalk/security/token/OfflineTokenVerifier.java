@@ -0,0 +1,130 @@
+package com.protectalk.security.token;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.protectalk.security.model.FirebasePrincipal;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+
+import static com.protectalk.security.token.TokenVerificationException.*;
+
+/**
+ * Verifies Firebase ID tokens locally, without calling Firebase:
+ * - RS256 signature against the current Google signing keys ({@link PublicKeySource})
+ * - aud / iss / sub / exp / iat / auth_time checks as documented for Firebase ID tokens
+ * - revocation against the periodically refreshed {@link RevocationTable}
+ * Pure CPU work, so it keeps working when the Firebase endpoints are slow.
+ */
+public class OfflineTokenVerifier implements TokenVerifier {
+
+    private static final String ISSUER_PREFIX = "https://securetoken.google.com/";
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> CLAIMS_TYPE = new TypeReference<>() {};
+
+    private final String          projectId;
+    private final String          issuer;
+    private final PublicKeySource keys;
+    private final RevocationTable revocations;
+    private final Clock           clock;
+    private final long            clockSkewSeconds;
+
+    public OfflineTokenVerifier(String projectId, PublicKeySource keys, RevocationTable revocations,
+                                Clock clock, Duration clockSkew) {
+        if (projectId == null || projectId.isBlank()) {
+            throw new IllegalArgumentException("Firebase project ID is required for offline token verification");
+        }
+        this.projectId = projectId;
+        this.issuer = ISSUER_PREFIX + projectId;
+        this.keys = keys;
+        this.revocations = revocations;
+        this.clock = clock;
+        this.clockSkewSeconds = clockSkew.toSeconds();
+    }
+
+    @Override
+    public FirebasePrincipal verify(String idToken) throws TokenVerificationException {
+        String[] parts = idToken == null ? new String[0] : idToken.split("\\.", -1);
+        if (parts.length != 3) {
+            throw new TokenVerificationException(INVALID_ARGUMENT, "Token must be a JWT with three segments");
+        }
+
+        Map<String, Object> header = decodeSegment(parts[0]);
+        Map<String, Object> claims = decodeSegment(parts[1]);
+
+        // 1) Signature
+        if (!"RS256".equals(header.get("alg"))) {
+            throw new TokenVerificationException(INVALID_ID_TOKEN, "Unexpected signing algorithm: " + header.get("alg"));
+        }
+        PublicKey key = header.get("kid") instanceof String kid ? keys.get(kid) : null;
+        if (key == null) {
+            throw new TokenVerificationException(INVALID_ID_TOKEN, "Token signed with unknown key: " + header.get("kid"));
+        }
+        if (!signatureMatches(key, parts)) {
+            throw new TokenVerificationException(INVALID_ID_TOKEN, "Token signature is invalid");
+        }
+
+        // 2) Claims
+        long now = clock.instant().getEpochSecond();
+        if (!projectId.equals(claims.get("aud"))) {
+            throw new TokenVerificationException(INVALID_ID_TOKEN, "Token has incorrect audience: " + claims.get("aud"));
+        }
+        if (!issuer.equals(claims.get("iss"))) {
+            throw new TokenVerificationException(INVALID_ID_TOKEN, "Token has incorrect issuer: " + claims.get("iss"));
+        }
+        if (!(claims.get("sub") instanceof String uid) || uid.isEmpty() || uid.length() > 128) {
+            throw new TokenVerificationException(INVALID_ID_TOKEN, "Token has missing or invalid subject");
+        }
+        long exp = numericClaim(claims, "exp");
+        long iat = numericClaim(claims, "iat");
+        long authTime = numericClaim(claims, "auth_time");
+        if (now - clockSkewSeconds >= exp) {
+            throw new TokenVerificationException(EXPIRED_ID_TOKEN, "Token has expired");
+        }
+        if (iat > now + clockSkewSeconds || authTime > now + clockSkewSeconds) {
+            throw new TokenVerificationException(INVALID_ID_TOKEN, "Token issued in the future");
+        }
+
+        // 3) Revocation
+        if (revocations.isRevoked(uid, authTime)) {
+            throw new TokenVerificationException(REVOKED_ID_TOKEN, "Token has been revoked");
+        }
+
+        Object email = claims.get("email");
+        return new FirebasePrincipal(uid, email instanceof String e ? e : null, claims);
+    }
+
+    // --- helpers ---
+
+    private static Map<String, Object> decodeSegment(String segment) throws TokenVerificationException {
+        try {
+            return JSON.readValue(Base64.getUrlDecoder().decode(segment), CLAIMS_TYPE);
+        } catch (Exception e) {
+            throw new TokenVerificationException(INVALID_ARGUMENT, "Token segment is not valid base64url JSON", e);
+        }
+    }
+
+    private static boolean signatureMatches(PublicKey key, String[] parts) throws TokenVerificationException {
+        try {
+            Signature verifier = Signature.getInstance("SHA256withRSA");
+            verifier.initVerify(key);
+            verifier.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+            return verifier.verify(Base64.getUrlDecoder().decode(parts[2]));
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
+            throw new TokenVerificationException(INVALID_ID_TOKEN, "Token signature could not be verified", e);
+        }
+    }
+
+    private static long numericClaim(Map<String, Object> claims, String name) throws TokenVerificationException {
+        if (claims.get(name) instanceof Number n) {
+            return n.longValue();
+        }
+        throw new TokenVerificationException(INVALID_ID_TOKEN, "Token is missing numeric claim: " + name);
+    }
+}
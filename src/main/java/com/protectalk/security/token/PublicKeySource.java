@@ -0,0 +1,11 @@
+package com.protectalk.security.token;
+
+import java.security.PublicKey;
+
+/**
+ * Lookup of token signing keys by JWT {@code kid}. Returns null for unknown key ids.
+ */
+@FunctionalInterface
+public interface PublicKeySource {
+    PublicKey get(String keyId);
+}
@@ -0,0 +1,112 @@
+package com.protectalk.security.token;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.UidIdentifier;
+import com.google.firebase.auth.UserIdentifier;
+import com.google.firebase.auth.UserRecord;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory revocation state used by {@link OfflineTokenVerifier}.
+ * - Only users this node has verified a token for within {@code activeUserTtl} are tracked (ID tokens live
+ *   one hour), so {@link #sweep()} looks up the active users in batches of 100, not every Firebase user.
+ * - A token is revoked when its auth_time is before the user's tokens-valid-after timestamp,
+ *   or when the account is disabled or deleted.
+ * Revocations become visible after at most one sweep interval; a user seen for the first time is accepted
+ * until the sweep after that.
+ */
+@Slf4j
+public class RevocationTable {
+
+    static final int MAX_USERS_PER_LOOKUP = 100;  // FirebaseAuth.getUsers limit
+
+    private final FirebaseAuth           firebaseAuth;
+    private final Cache<String, Boolean> activeUids;
+
+    private volatile Map<String, Long> validAfterMillis = Map.of();
+    private volatile Set<String>       disabledUids     = Set.of();
+
+    public RevocationTable(FirebaseAuth firebaseAuth, Duration activeUserTtl, long maxActiveUsers) {
+        this.firebaseAuth = firebaseAuth;
+        this.activeUids = Caffeine.newBuilder()
+                                  .expireAfterAccess(activeUserTtl)
+                                  .maximumSize(maxActiveUsers)
+                                  .build();
+    }
+
+    public boolean isRevoked(String uid, long authTimeSeconds) {
+        if (activeUids.getIfPresent(uid) == null) {
+            activeUids.put(uid, Boolean.TRUE);
+        }
+        if (disabledUids.contains(uid)) {
+            return true;
+        }
+        Long validAfter = validAfterMillis.get(uid);
+        return validAfter != null && authTimeSeconds * 1000 < validAfter;
+    }
+
+    public void sweep() {
+        if (firebaseAuth == null) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        List<String> uids = new ArrayList<>(activeUids.asMap().keySet());
+        Map<String, Long> validAfter = new HashMap<>();
+        Set<String> disabled = new HashSet<>();
+        int failedLookups = 0;
+
+        for (int from = 0; from < uids.size(); from += MAX_USERS_PER_LOOKUP) {
+            List<String> batch = uids.subList(from, Math.min(from + MAX_USERS_PER_LOOKUP, uids.size()));
+            try {
+                lookup(batch, validAfter, disabled);
+            } catch (Exception e) {
+                // Keep what the previous sweep knew about these users
+                failedLookups++;
+                for (String uid : batch) {
+                    Long previous = validAfterMillis.get(uid);
+                    if (previous != null) {
+                        validAfter.put(uid, previous);
+                    }
+                    if (disabledUids.contains(uid)) {
+                        disabled.add(uid);
+                    }
+                }
+                log.warn("Revocation lookup failed for {} users, keeping their previous state: {}",
+                         batch.size(), e.getMessage());
+            }
+        }
+
+        this.validAfterMillis = Map.copyOf(validAfter);
+        this.disabledUids = Set.copyOf(disabled);
+        log.debug("Revocation sweep completed - active users: {} validAfter entries: {} disabled: {} "
+                          + "failed lookups: {} in {} ms",
+                  uids.size(), validAfter.size(), disabled.size(), failedLookups,
+                  System.currentTimeMillis() - started);
+    }
+
+    private void lookup(List<String> uids, Map<String, Long> validAfter, Set<String> disabled) throws Exception {
+        List<UserIdentifier> identifiers = uids.stream().<UserIdentifier>map(UidIdentifier::new).toList();
+        Set<String> missing = new HashSet<>(uids);
+        for (UserRecord user : firebaseAuth.getUsers(identifiers).getUsers()) {
+            missing.remove(user.getUid());
+            if (user.getTokensValidAfterTimestamp() > 0) {
+                validAfter.put(user.getUid(), user.getTokensValidAfterTimestamp());
+            }
+            if (user.isDisabled()) {
+                disabled.add(user.getUid());
+            }
+        }
+        // Deleted accounts: the remote verifier rejects their tokens as well
+        disabled.addAll(missing);
+    }
+}
@@ -0,0 +1,28 @@
+package com.protectalk.security.token;
+
+import lombok.Getter;
+
+/**
+ * Token rejected by a {@link TokenVerifier}.
+ * {@code errorCode} mirrors Firebase's AuthErrorCode names (EXPIRED_ID_TOKEN, REVOKED_ID_TOKEN, ...).
+ */
+@Getter
+public class TokenVerificationException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public static final String INVALID_ARGUMENT = "INVALID_ARGUMENT";
+    public static final String INVALID_ID_TOKEN = "INVALID_ID_TOKEN";
+    public static final String EXPIRED_ID_TOKEN = "EXPIRED_ID_TOKEN";
+    public static final String REVOKED_ID_TOKEN = "REVOKED_ID_TOKEN";
+
+    private final String errorCode;
+
+    public TokenVerificationException(String errorCode, String message) {
+        this(errorCode, message, null);
+    }
+
+    public TokenVerificationException(String errorCode, String message, Throwable cause) {
+        super(message, cause);
+        this.errorCode = errorCode;
+    }
+}
@@ -0,0 +1,11 @@
+package com.protectalk.security.token;
+
+import com.protectalk.security.model.FirebasePrincipal;
+
+/**
+ * Verifies a Firebase ID token and returns the authenticated principal.
+ * The active implementation is chosen by {@code protectalk.auth.verification} (remote | offline).
+ */
+public interface TokenVerifier {
+    FirebasePrincipal verify(String idToken) throws TokenVerificationException;
+}
@@ -0,0 +1,71 @@
+package com.protectalk.usermanagment.model;
+
+import com.protectalk.device.model.Platform;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Denormalized recipients of a user's notifications, keyed by the user's Firebase UID.
+ * - Derived from users.linkedContacts and device_tokens; never edited by hand.
+ * - Kept up to date by AlertRouteService and repaired by its periodic verify pass.
+ * - topic / topicTokens / topicSynced track the owner's alert topic: topicTokens may include tokens still being
+ *   (un)subscribed, topicSynced is only set once the topic holds exactly the trusted contact tokens.
+ */
+@Document("alert_routes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AlertRouteEntity {
+
+    @Id
+    private String firebaseUid;                // Route owner (the protegee for alert fan-out)
+
+    @Indexed
+    private List<String> trustedContactTokens; // FCM tokens of the owner's trusted contacts
+
+    @Indexed
+    private List<String> protegeeTokens;       // FCM tokens of the owner's protegees
+
+    private Map<Platform, List<String>> platformTokens; // Recipient tokens of both types by device platform
+
+    private Instant refreshedAt;
+
+    private String       topic;                // Alert topic name the topic fields refer to
+    private List<String> topicTokens;          // Tokens that may be subscribed to the owner's alert topic
+    private boolean      topicSynced;          // Last topic sync completed for the current trusted contact tokens
+
+    public List<String> tokensFor(ContactType contactType) {
+        List<String> tokens = switch (contactType) {
+            case TRUSTED_CONTACT -> trustedContactTokens;
+            case PROTEGEE -> protegeeTokens;
+        };
+        return tokens == null ? List.of() : tokens;
+    }
+
+    // token -> platform, for tokens whose device reported one
+    public Map<String, Platform> tokenPlatforms() {
+        Map<String, Platform> platforms = new HashMap<>();
+        if (platformTokens != null) {
+            platformTokens.forEach((platform, tokens) -> tokens.forEach(token -> platforms.put(token, platform)));
+        }
+        return platforms;
+    }
+
+    // The given alert topic reaches exactly the trusted contacts
+    public boolean isTopicInSync(String expectedTopic) {
+        return topicSynced && expectedTopic.equals(topic) && topicTokens != null
+               && new HashSet<>(topicTokens).equals(new HashSet<>(tokensFor(ContactType.TRUSTED_CONTACT)));
+    }
+}
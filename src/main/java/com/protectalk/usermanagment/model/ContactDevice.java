@@ -0,0 +1,8 @@
+package com.protectalk.usermanagment.model;
+
+import com.protectalk.device.model.Platform;
+
+/**
+ * One device of a linked contact, as resolved for the alert routes.
+ */
+public record ContactDevice(String fcmToken, Platform platform) {}
@@ -0,0 +1,9 @@
+package com.protectalk.usermanagment.repo;
+
+import com.protectalk.usermanagment.model.AlertRouteEntity;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AlertRouteRepository extends MongoRepository<AlertRouteEntity, String>, AlertRouteRepositoryCustom {
+}
@@ -0,0 +1,22 @@
+package com.protectalk.usermanagment.repo;
+
+import com.protectalk.usermanagment.model.AlertRouteEntity;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface AlertRouteRepositoryCustom {
+
+    // Remove the tokens from every route that lists any of them, in one update and without reading the routes first
+    long pullTokens(Collection<String> fcmTokens);
+
+    // Upsert the recipient lists only; the topic fields are owned by the topic sync
+    AlertRouteEntity upsertRecipients(AlertRouteEntity route);
+
+    // Before a topic sync: set the topic, widen topicTokens to every token that may end up subscribed and clear
+    // topicSynced
+    void markTopicSyncing(String firebaseUid, String topic, List<String> tokens);
+
+    // After a topic sync: record the topic members, unless the trusted contact tokens changed meanwhile
+    boolean markTopicSynced(String firebaseUid, List<String> trustedContactTokens);
+}
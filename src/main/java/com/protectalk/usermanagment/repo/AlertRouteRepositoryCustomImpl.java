@@ -0,0 +1,64 @@
+package com.protectalk.usermanagment.repo;
+
+import com.protectalk.device.model.Platform;
+import com.protectalk.usermanagment.model.AlertRouteEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class AlertRouteRepositoryCustomImpl implements AlertRouteRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public long pullTokens(Collection<String> fcmTokens) {
+        var query = Query.query(new Criteria().orOperator(Criteria.where("trustedContactTokens").in(fcmTokens),
+                                                          Criteria.where("protegeeTokens").in(fcmTokens),
+                                                          Criteria.where("topicTokens").in(fcmTokens)));
+        var update = new Update().pullAll("trustedContactTokens", fcmTokens.toArray())
+                                 .pullAll("protegeeTokens", fcmTokens.toArray())
+                                 .pullAll("topicTokens", fcmTokens.toArray())
+                                 .set("refreshedAt", Instant.now());
+        for (Platform platform : Platform.values()) {
+            update.pullAll("platformTokens." + platform.name(), fcmTokens.toArray());
+        }
+        return mongoTemplate.updateMulti(query, update, AlertRouteEntity.class).getModifiedCount();
+    }
+
+    @Override
+    public AlertRouteEntity upsertRecipients(AlertRouteEntity route) {
+        var query = Query.query(Criteria.where("_id").is(route.getFirebaseUid()));
+        var update = new Update().set("trustedContactTokens", route.getTrustedContactTokens())
+                                 .set("protegeeTokens", route.getProtegeeTokens())
+                                 .set("platformTokens", route.getPlatformTokens())
+                                 .set("refreshedAt", route.getRefreshedAt());
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().upsert(true).returnNew(true),
+                                           AlertRouteEntity.class);
+    }
+
+    @Override
+    public void markTopicSyncing(String firebaseUid, String topic, List<String> tokens) {
+        var query = Query.query(Criteria.where("_id").is(firebaseUid));
+        var update = new Update().set("topicSynced", false)
+                                 .set("topic", topic)
+                                 .addToSet("topicTokens").each(tokens.toArray());
+        mongoTemplate.updateFirst(query, update, AlertRouteEntity.class);
+    }
+
+    @Override
+    public boolean markTopicSynced(String firebaseUid, List<String> trustedContactTokens) {
+        var query = Query.query(Criteria.where("_id").is(firebaseUid)
+                                        .and("trustedContactTokens").is(trustedContactTokens));
+        var update = new Update().set("topicTokens", trustedContactTokens)
+                                 .set("topicSynced", true);
+        return mongoTemplate.updateFirst(query, update, AlertRouteEntity.class).getMatchedCount() > 0;
+    }
+}
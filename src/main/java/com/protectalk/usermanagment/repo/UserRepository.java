@@ -1,6 +1,9 @@
 package com.protectalk.usermanagment.repo;
 
+import com.protectalk.usermanagment.model.ContactDevice;
 import com.protectalk.usermanagment.model.UserEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -13,4 +16,33 @@ public interface UserRepository extends MongoRepository<UserEntity, String> {
     Optional<UserEntity> findByFirebaseUid(String firebaseUid);
     List<UserEntity> findByLinkedContactsPhoneNumber(String phoneNumber);
 
-}
\ No newline at end of file
+    // Keyset pages in _id order (no count query, no skip), for passes over all users
+    List<UserEntity> findAllByOrderByIdAsc(Pageable pageable);
+    List<UserEntity> findByIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
+
+    // FCM tokens of all linked contacts of a given type, resolved in a single round trip
+    @Aggregation(pipeline = {
+            "{ $match: { firebaseUid: ?0 } }",
+            "{ $unwind: '$linkedContacts' }",
+            "{ $match: { 'linkedContacts.contactType': ?1 } }",
+            "{ $lookup: { from: 'users', localField: 'linkedContacts.phoneNumber', foreignField: 'phoneNumber', as: 'contact' } }",
+            "{ $unwind: '$contact' }",
+            "{ $lookup: { from: 'device_tokens', localField: 'contact.firebaseUid', foreignField: 'userId', as: 'device' } }",
+            "{ $unwind: '$device' }",
+            "{ $project: { _id: 0, fcmToken: '$device.fcmToken' } }"
+    })
+    List<String> findLinkedContactTokens(String firebaseUid, String contactType);
+
+    // Same walk as findLinkedContactTokens, keeping each device's platform for message shaping
+    @Aggregation(pipeline = {
+            "{ $match: { firebaseUid: ?0 } }",
+            "{ $unwind: '$linkedContacts' }",
+            "{ $match: { 'linkedContacts.contactType': ?1 } }",
+            "{ $lookup: { from: 'users', localField: 'linkedContacts.phoneNumber', foreignField: 'phoneNumber', as: 'contact' } }",
+            "{ $unwind: '$contact' }",
+            "{ $lookup: { from: 'device_tokens', localField: 'contact.firebaseUid', foreignField: 'userId', as: 'device' } }",
+            "{ $unwind: '$device' }",
+            "{ $project: { _id: 0, fcmToken: '$device.fcmToken', platform: '$device.platform' } }"
+    })
+    List<ContactDevice> findLinkedContactDevices(String firebaseUid, String contactType);
+}
@@ -0,0 +1,168 @@
+package com.protectalk.usermanagment.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.protectalk.usermanagment.model.AlertRouteEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Per-node cache of alert routes, invalidated by a change stream on alert_routes.
+ * - Every route write (contact change, token register/delete, verify repair) produces a change event,
+ *   so other nodes drop the entry within the stream latency.
+ * - The cache is only consulted while the stream is open. Without one (standalone Mongo, stream error)
+ *   reads go straight to Mongo and the stream is re-opened after {@code retry-delay}.
+ * - Entries also expire after {@code ttl} as a backstop.
+ */
+@Slf4j
+@Component
+public class AlertRouteCache {
+
+    private static final String COLLECTION = "alert_routes";
+
+    private final MongoTemplate                   mongoTemplate;
+    private final boolean                         enabled;
+    private final Duration                        retryDelay;
+    private final Cache<String, AlertRouteEntity> cache;
+    private final Timer                           invalidationLag;
+
+    private volatile boolean streaming;
+    private volatile boolean running;
+    private Thread           watcher;
+
+    public AlertRouteCache(MongoTemplate mongoTemplate,
+                           @Value("${protectalk.alerts.routes.cache.enabled:true}") boolean enabled,
+                           @Value("${protectalk.alerts.routes.cache.max-size:10000}") long maxSize,
+                           @Value("${protectalk.alerts.routes.cache.ttl:PT5M}") Duration ttl,
+                           @Value("${protectalk.alerts.routes.cache.retry-delay:PT30S}") Duration retryDelay,
+                           MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.retryDelay = retryDelay;
+        this.cache = Caffeine.newBuilder()
+                             .maximumSize(maxSize)
+                             .expireAfterWrite(ttl)
+                             .recordStats()
+                             .build();
+        this.invalidationLag = Timer.builder("alerts.route_cache.invalidation_lag")
+                                    .description("Time from a route write in Mongo to its invalidation on this node")
+                                    .publishPercentiles(0.5, 0.99)
+                                    .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "alerts.route-cache");
+        meterRegistry.gauge("alerts.route_cache.streaming", this, c -> c.streaming ? 1 : 0);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        watcher = new Thread(this::watch, "alert-route-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+
+    /**
+     * Cached route for the user, loaded with {@code loader} on a miss or while no change stream is open.
+     */
+    public AlertRouteEntity get(String firebaseUid, Function<String, AlertRouteEntity> loader) {
+        if (!streaming) {
+            return loader.apply(firebaseUid);
+        }
+        // Loading through the cache makes a concurrent invalidate wait for the load, so no stale entry survives
+        return cache.get(firebaseUid, loader);
+    }
+
+    public void invalidate(String firebaseUid) {
+        cache.invalidate(firebaseUid);
+    }
+
+    private void watch() {
+        BsonDocument resumeToken = null;
+        while (running) {
+            var stream = mongoTemplate.getCollection(COLLECTION).watch().maxAwaitTime(1, TimeUnit.SECONDS);
+            if (resumeToken != null) {
+                stream = stream.resumeAfter(resumeToken);
+            }
+            try (var cursor = stream.cursor()) {
+                // Anything cached before the stream was (re)opened may have missed its invalidation
+                cache.invalidateAll();
+                streaming = true;
+                log.info("Watching {} for alert route cache invalidation", COLLECTION);
+
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change == null) {
+                        continue;
+                    }
+                    resumeToken = change.getResumeToken();
+                    apply(change);
+                    if (change.getOperationType() == OperationType.INVALIDATE) {
+                        resumeToken = null;
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("Alert route change stream unavailable, bypassing cache - retry in: {} ({})",
+                         retryDelay, e.getMessage());
+                resumeToken = null;
+            } finally {
+                streaming = false;
+                cache.invalidateAll();
+            }
+            sleepBeforeRetry();
+        }
+    }
+
+    private void apply(ChangeStreamDocument<Document> change) {
+        BsonDocument key = change.getDocumentKey();
+        if (key != null && key.isString("_id")) {
+            cache.invalidate(key.getString("_id").getValue());
+        } else {
+            cache.invalidateAll();
+        }
+        if (change.getWallTime() != null) {
+            long lagMillis = System.currentTimeMillis() - change.getWallTime().getValue();
+            invalidationLag.record(Math.max(lagMillis, 0), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sleepBeforeRetry() {
+        if (!running) {
+            return;
+        }
+        try {
+            Thread.sleep(retryDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.protectalk.usermanagment.service;
+
+import com.protectalk.device.model.Platform;
+import com.protectalk.usermanagment.model.AlertRouteEntity;
+import com.protectalk.usermanagment.model.ContactDevice;
+import com.protectalk.usermanagment.model.ContactType;
+import com.protectalk.usermanagment.model.UserEntity;
+import com.protectalk.usermanagment.repo.AlertRouteRepository;
+import com.protectalk.usermanagment.repo.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Materialized routing table (alert_routes): recipient FCM tokens per user and contact type,
+ * with the device platform of each token for message shaping.
+ * - Alert fan-out reads one document by primary key instead of walking contacts and devices.
+ * - Routes are recomputed for the users affected by a contact or device token change.
+ * - A missing route is computed and stored on first read.
+ * - Reads go through {@link AlertRouteCache}; writes here invalidate the local entry right away,
+ *   other nodes drop theirs from the change stream.
+ * - A periodic verify pass recomputes every route and repairs drift (failed or racing refreshes).
+ *   It walks the users in _id pages on its own thread, paced to {@code verify-rate} users per second,
+ *   and starts the next pass {@code verify-interval} after the last page.
+ * - Route writes only touch the recipient lists; a route whose alert topic is out of sync is handed
+ *   to {@link AlertTopicService}, and the verify pass retries failed topic syncs.
+ */
+@Slf4j
+@Service
+public class AlertRouteService {
+
+    private final UserRepository       userRepository;
+    private final AlertRouteRepository alertRouteRepository;
+    private final AlertRouteCache      alertRouteCache;
+    private final AlertTopicService    alertTopicService;
+    private final Duration             verifyInterval;
+    private final int                  verifyPageSize;
+    private final double               verifyRate;
+    private final Counter              routeMisses;
+    private final Counter              routesRepaired;
+    private final ScheduledExecutorService verifier;
+
+    // Verify pass state, only touched on the verifier thread
+    private String verifyCursor;
+    private long   verifyStarted;
+    private int    verifyChecked;
+    private int    verifyRepaired;
+
+    public AlertRouteService(UserRepository userRepository, AlertRouteRepository alertRouteRepository,
+                             AlertRouteCache alertRouteCache, AlertTopicService alertTopicService,
+                             @Value("${protectalk.alerts.routes.verify-interval:PT1H}") Duration verifyInterval,
+                             @Value("${protectalk.alerts.routes.verify-initial-delay:PT1M}") Duration verifyInitialDelay,
+                             @Value("${protectalk.alerts.routes.verify-page-size:100}") int verifyPageSize,
+                             @Value("${protectalk.alerts.routes.verify-rate:50}") double verifyRate,
+                             MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.alertRouteRepository = alertRouteRepository;
+        this.alertRouteCache = alertRouteCache;
+        this.alertTopicService = alertTopicService;
+        this.verifyInterval = verifyInterval;
+        this.verifyPageSize = verifyPageSize;
+        this.verifyRate = verifyRate;
+        this.routeMisses = meterRegistry.counter("alerts.routes.misses");
+        this.routesRepaired = meterRegistry.counter("alerts.routes.repaired");
+        this.verifier = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alert-route-verify");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        verifier.schedule(this::verifyNextPage, verifyInitialDelay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        verifier.shutdownNow();
+    }
+
+    /**
+     * FCM tokens of the user's contacts of the given type, read from the route table.
+     */
+    public List<String> getRecipientTokens(String firebaseUid, ContactType contactType) {
+        return getRoute(firebaseUid).tokensFor(contactType);
+    }
+
+    /**
+     * The user's route, read through the cache.
+     */
+    public AlertRouteEntity getRoute(String firebaseUid) {
+        return alertRouteCache.get(firebaseUid, this::loadRoute);
+    }
+
+    /**
+     * The alert topic to reach the route's trusted contacts with, or null to send per token.
+     */
+    public String getAlertTopic(AlertRouteEntity route) {
+        return alertTopicService.topicFor(route);
+    }
+
+    /**
+     * Recompute the routes of the given users (both sides of a contact change).
+     * Failures are logged, not thrown; the verify pass repairs them.
+     */
+    public void refresh(String... firebaseUids) {
+        for (String firebaseUid : firebaseUids) {
+            if (firebaseUid == null) {
+                continue;
+            }
+            try {
+                save(compute(firebaseUid));
+                log.debug("Refreshed alert route for UID: {}", firebaseUid);
+            } catch (Exception e) {
+                log.error("Failed to refresh alert route for UID: {}", firebaseUid, e);
+            }
+        }
+    }
+
+    /**
+     * A user's device tokens changed: recompute the routes of everyone who lists this user as a contact.
+     */
+    public void refreshRoutesContaining(String firebaseUid) {
+        try {
+            userRepository.findByFirebaseUid(firebaseUid)
+                          .map(UserEntity::getPhoneNumber)
+                          .ifPresent(this::refreshRoutesContainingPhone);
+        } catch (Exception e) {
+            log.error("Failed to refresh alert routes containing UID: {}", firebaseUid, e);
+        }
+    }
+
+    /**
+     * A user's phone number changed: recompute the routes of everyone who lists the old or the new number,
+     * since contacts resolve to devices by phone number.
+     */
+    public void refreshForPhoneChange(String oldPhoneNumber, String newPhoneNumber) {
+        if (Objects.equals(oldPhoneNumber, newPhoneNumber)) {
+            return;
+        }
+        for (String phoneNumber : new String[] {oldPhoneNumber, newPhoneNumber}) {
+            if (phoneNumber == null) {
+                continue;
+            }
+            try {
+                refreshRoutesContainingPhone(phoneNumber);
+            } catch (Exception e) {
+                log.error("Failed to refresh alert routes containing phone: {}", phoneNumber, e);
+            }
+        }
+    }
+
+    /**
+     * Tokens were deleted: drop them from every route in place.
+     */
+    public void removeTokens(Collection<String> fcmTokens) {
+        try {
+            long updated = alertRouteRepository.pullTokens(fcmTokens);
+            if (updated > 0) {
+                log.debug("Removed {} deleted FCM tokens from {} alert routes", fcmTokens.size(), updated);
+            }
+        } catch (Exception e) {
+            log.error("Failed to remove {} deleted FCM tokens from alert routes", fcmTokens.size(), e);
+        }
+    }
+
+    // ---- verify pass ----
+
+    /**
+     * Verify the next page of users after the cursor, then schedule the following page once the page's
+     * share of the rate has elapsed, or the next pass after the last page.
+     */
+    private void verifyNextPage() {
+        long delayMillis;
+        try {
+            if (verifyCursor == null) {
+                verifyStarted = System.currentTimeMillis();
+                verifyChecked = 0;
+                verifyRepaired = 0;
+            }
+            var pageable = PageRequest.ofSize(verifyPageSize);
+            List<UserEntity> page = verifyCursor == null
+                    ? userRepository.findAllByOrderByIdAsc(pageable)
+                    : userRepository.findByIdGreaterThanOrderByIdAsc(verifyCursor, pageable);
+            for (UserEntity user : page) {
+                if (user.getFirebaseUid() != null) {
+                    verify(user.getFirebaseUid());
+                }
+            }
+            if (page.size() < verifyPageSize) {
+                log.info("Alert route verify completed - checked: {} repaired: {} in {} ms",
+                         verifyChecked, verifyRepaired, System.currentTimeMillis() - verifyStarted);
+                verifyCursor = null;
+                delayMillis = verifyInterval.toMillis();
+            } else {
+                verifyCursor = page.get(page.size() - 1).getId();
+                delayMillis = (long) (page.size() * 1000 / verifyRate);
+            }
+        } catch (Exception e) {
+            log.error("Alert route verify failed after checking {} routes", verifyChecked, e);
+            verifyCursor = null;
+            delayMillis = verifyInterval.toMillis();
+        }
+        if (!verifier.isShutdown()) {
+            verifier.schedule(this::verifyNextPage, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void verify(String firebaseUid) {
+        verifyChecked++;
+        var expected = compute(firebaseUid);
+        var stored = alertRouteRepository.findById(firebaseUid).orElse(null);
+        if (stored == null || !sameTokens(stored, expected)) {
+            save(expected);
+            verifyRepaired++;
+            routesRepaired.increment();
+        } else if (!alertTopicService.isInSync(stored)) {
+            alertTopicService.sync(firebaseUid);
+        }
+    }
+
+    // ---- helpers ----
+
+    private void refreshRoutesContainingPhone(String phoneNumber) {
+        String[] owners = userRepository.findByLinkedContactsPhoneNumber(phoneNumber).stream()
+                                        .map(UserEntity::getFirebaseUid)
+                                        .toArray(String[]::new);
+        log.debug("Contact devices changed for phone: {}, refreshing {} alert routes", phoneNumber, owners.length);
+        refresh(owners);
+    }
+
+    private AlertRouteEntity loadRoute(String firebaseUid) {
+        var route = alertRouteRepository.findById(firebaseUid).orElse(null);
+        if (route == null) {
+            routeMisses.increment();
+            log.debug("No alert route for UID: {}, computing it", firebaseUid);
+            route = alertRouteRepository.upsertRecipients(compute(firebaseUid));
+            syncTopic(route);
+        }
+        return route;
+    }
+
+    private void save(AlertRouteEntity route) {
+        syncTopic(alertRouteRepository.upsertRecipients(route));
+        alertRouteCache.invalidate(route.getFirebaseUid());
+    }
+
+    private void syncTopic(AlertRouteEntity stored) {
+        if (stored != null && !alertTopicService.isInSync(stored)) {
+            alertTopicService.sync(stored.getFirebaseUid());
+        }
+    }
+
+    private AlertRouteEntity compute(String firebaseUid) {
+        var trustedContactDevices = devicesOf(firebaseUid, ContactType.TRUSTED_CONTACT);
+        var protegeeDevices = devicesOf(firebaseUid, ContactType.PROTEGEE);
+        Map<Platform, List<String>> platformTokens = new EnumMap<>(Platform.class);
+        Stream.concat(trustedContactDevices.stream(), protegeeDevices.stream())
+              .filter(device -> device.platform() != null)
+              .forEach(device -> platformTokens.computeIfAbsent(device.platform(), platform -> new ArrayList<>())
+                                               .add(device.fcmToken()));
+        platformTokens.replaceAll((platform, tokens) -> tokens.stream().distinct().toList());
+        return AlertRouteEntity.builder()
+                               .firebaseUid(firebaseUid)
+                               .trustedContactTokens(tokensOf(trustedContactDevices))
+                               .protegeeTokens(tokensOf(protegeeDevices))
+                               .platformTokens(platformTokens)
+                               .refreshedAt(Instant.now())
+                               .build();
+    }
+
+    private List<ContactDevice> devicesOf(String firebaseUid, ContactType contactType) {
+        return userRepository.findLinkedContactDevices(firebaseUid, contactType.name()).stream()
+                             .filter(device -> device.fcmToken() != null)
+                             .toList();
+    }
+
+    private static List<String> tokensOf(List<ContactDevice> devices) {
+        return devices.stream().map(ContactDevice::fcmToken).distinct().toList();
+    }
+
+    private static boolean sameTokens(AlertRouteEntity a, AlertRouteEntity b) {
+        for (ContactType contactType : ContactType.values()) {
+            if (!new HashSet<>(a.tokensFor(contactType)).equals(new HashSet<>(b.tokensFor(contactType)))) {
+                return false;
+            }
+        }
+        return a.tokenPlatforms().equals(b.tokenPlatforms());
+    }
+}
@@ -0,0 +1,161 @@
+package com.protectalk.usermanagment.service;
+
+import com.protectalk.messaging.TopicSubscriptions;
+import com.protectalk.usermanagment.model.AlertRouteEntity;
+import com.protectalk.usermanagment.model.ContactType;
+import com.protectalk.usermanagment.repo.AlertRouteRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * One FCM topic per protegee whose members are the protegee's trusted contact tokens,
+ * so an alert is one topic send instead of a per-token fan-out.
+ * - The topic name is "alerts-" + HMAC-SHA256(secret, uid): clients can subscribe to any topic themselves,
+ *   so a name derived from the uid alone would let anyone receive another user's alerts.
+ * - Membership follows the alert route: every route write that leaves the topic out of sync triggers a sync.
+ * - A sync subscribes all wanted tokens (idempotent, so partial failures heal on the next run) and
+ *   unsubscribes tokens that may still be members. It marks the route synced only if the trusted contact
+ *   tokens did not change meanwhile.
+ * - Syncs for one user run one after another, each reading the latest route.
+ * - Until a route is synced, alerts go per token. Topic sends trade a little delivery latency (FCM fans
+ *   out asynchronously) for one request per alert; below {@code min-recipients} per-token sends are kept.
+ */
+@Slf4j
+@Service
+public class AlertTopicService {
+
+    private static final String TOPIC_HMAC = "HmacSHA256";
+
+    private final TopicSubscriptions                   topicSubscriptions;
+    private final AlertRouteRepository                 alertRouteRepository;
+    private final AlertRouteCache                      alertRouteCache;
+    private final Executor                             fanoutExecutor;
+    private final boolean                              enabled;
+    private final int                                  minRecipients;
+    private final SecretKeySpec                        topicKey;
+    private final Map<String, CompletableFuture<Void>> syncs = new ConcurrentHashMap<>();
+    private final Counter                              synced;
+    private final Counter                              syncFailures;
+
+    public AlertTopicService(TopicSubscriptions topicSubscriptions, AlertRouteRepository alertRouteRepository,
+                             AlertRouteCache alertRouteCache,
+                             @Qualifier("alertFanoutExecutor") Executor fanoutExecutor,
+                             @Value("${protectalk.alerts.topics.enabled:false}") boolean enabled,
+                             @Value("${protectalk.alerts.topics.min-recipients:2}") int minRecipients,
+                             @Value("${protectalk.alerts.topics.secret:}") String topicSecret,
+                             MeterRegistry meterRegistry) {
+        if (enabled && (topicSecret == null || topicSecret.isBlank())) {
+            throw new IllegalStateException("protectalk.alerts.topics.secret must be set when alert topics are enabled");
+        }
+        this.topicSubscriptions = topicSubscriptions;
+        this.alertRouteRepository = alertRouteRepository;
+        this.alertRouteCache = alertRouteCache;
+        this.fanoutExecutor = fanoutExecutor;
+        this.enabled = enabled;
+        this.minRecipients = minRecipients;
+        this.topicKey = enabled ? new SecretKeySpec(topicSecret.getBytes(StandardCharsets.UTF_8), TOPIC_HMAC) : null;
+        this.synced = meterRegistry.counter("alerts.topics.synced");
+        this.syncFailures = meterRegistry.counter("alerts.topics.sync_failed");
+    }
+
+    /**
+     * The topic to send the owner's alerts to, or null when alerts should go per token.
+     */
+    public String topicFor(AlertRouteEntity route) {
+        if (!enabled || route == null || route.tokensFor(ContactType.TRUSTED_CONTACT).size() < minRecipients) {
+            return null;
+        }
+        String topic = topicName(route.getFirebaseUid());
+        return route.isTopicInSync(topic) ? topic : null;
+    }
+
+    /**
+     * Whether the route's topic is the current one and reaches exactly its trusted contacts (always when disabled).
+     */
+    public boolean isInSync(AlertRouteEntity route) {
+        return !enabled || route.isTopicInSync(topicName(route.getFirebaseUid()));
+    }
+
+    /**
+     * Bring the owner's topic in line with the stored route, in the background. No-op when topics are disabled.
+     */
+    public void sync(String firebaseUid) {
+        if (!enabled || firebaseUid == null) {
+            return;
+        }
+        CompletableFuture<Void> next = syncs.compute(firebaseUid, (uid, previous) ->
+                (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous.exceptionally(e -> null))
+                        .thenComposeAsync(ignored -> syncNow(uid), fanoutExecutor));
+        next.whenComplete((ignored, error) -> {
+            syncs.remove(firebaseUid, next);
+            if (error != null) {
+                syncFailures.increment();
+                log.warn("Alert topic sync failed for UID: {} - alerts stay per token until the next sync: {}",
+                         firebaseUid, error.getMessage());
+            }
+        });
+    }
+
+    // Unguessable without the server secret; hex fits FCM's topic charset for any uid
+    String topicName(String firebaseUid) {
+        try {
+            Mac mac = Mac.getInstance(TOPIC_HMAC);
+            mac.init(topicKey);
+            return "alerts-" + HexFormat.of().formatHex(mac.doFinal(firebaseUid.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private CompletableFuture<Void> syncNow(String firebaseUid) {
+        var route = alertRouteRepository.findById(firebaseUid).orElse(null);
+        String topic = topicName(firebaseUid);
+        if (route == null || route.isTopicInSync(topic)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<String> wanted = route.tokensFor(ContactType.TRUSTED_CONTACT);
+        var keep = new HashSet<>(wanted);
+        List<String> previousTokens = route.getTopicTokens() == null ? List.of() : route.getTopicTokens();
+        List<String> stale = previousTokens.stream().filter(token -> !keep.contains(token)).toList();
+        // After a secret change the old topic is emptied once, best effort; it is never sent to again
+        String previousTopic = route.getTopic() != null && !route.getTopic().equals(topic) ? route.getTopic() : null;
+
+        // Record the new tokens first, so a failed or partial subscribe is still unsubscribed later
+        alertRouteRepository.markTopicSyncing(firebaseUid, topic, wanted);
+        alertRouteCache.invalidate(firebaseUid);
+        CompletableFuture<Void> leavePrevious = previousTopic == null
+                                                ? CompletableFuture.completedFuture(null)
+                                                : topicSubscriptions.unsubscribe(previousTopic, previousTokens)
+                                                                    .exceptionally(e -> null);
+        return CompletableFuture.allOf(topicSubscriptions.subscribe(topic, wanted),
+                                       topicSubscriptions.unsubscribe(topic, stale),
+                                       leavePrevious)
+                                .thenRunAsync(() -> {
+                                    if (alertRouteRepository.markTopicSynced(firebaseUid, wanted)) {
+                                        alertRouteCache.invalidate(firebaseUid);
+                                        synced.increment();
+                                        log.debug("Alert topic synced - UID: {} members: {} removed: {}",
+                                                  firebaseUid, wanted.size(), stale.size());
+                                    } else {
+                                        // contacts changed while syncing; that change (or the verify pass) syncs again
+                                        log.debug("Alert route changed during topic sync - UID: {}", firebaseUid);
+                                    }
+                                }, fanoutExecutor);
+    }
+}
@@ -1,7 +1,9 @@
 package com.protectalk.usermanagment.service;
 
 import com.protectalk.device.service.DeviceTokenService;
+import com.protectalk.device.service.InvalidTokenPruner;
 import com.protectalk.messaging.NotificationGateway;
+import com.protectalk.messaging.NotificationPriority;
 import com.protectalk.messaging.OutboundMessage;
 import com.protectalk.usermanagment.dto.AddContactRequestDto;
 import com.protectalk.usermanagment.model.ContactType;
@@ -9,17 +11,17 @@ import com.protectalk.usermanagment.model.ContactRequestEntity;
 import com.protectalk.usermanagment.model.UserEntity;
 import com.protectalk.usermanagment.repo.ContactRequestRepository;
 import com.protectalk.usermanagment.repo.UserRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ContactRequestService {
 
     // Notification constants
@@ -57,7 +59,23 @@ public class ContactRequestService {
     private final ContactRequestRepository requestRepository;
     private final UserRepository           userRepository;
     private final DeviceTokenService       deviceTokenService;
+    private final InvalidTokenPruner       invalidTokenPruner;
     private final NotificationGateway      notificationGateway;
+    private final AlertRouteService        alertRouteService;
+    private final Executor                 callbackExecutor;  // send outcomes are handled here, not on the send pool
+
+    public ContactRequestService(ContactRequestRepository requestRepository, UserRepository userRepository,
+                                 DeviceTokenService deviceTokenService, InvalidTokenPruner invalidTokenPruner,
+                                 NotificationGateway notificationGateway, AlertRouteService alertRouteService,
+                                 @Qualifier("notificationCallbackExecutor") Executor callbackExecutor) {
+        this.requestRepository = requestRepository;
+        this.userRepository = userRepository;
+        this.deviceTokenService = deviceTokenService;
+        this.invalidTokenPruner = invalidTokenPruner;
+        this.notificationGateway = notificationGateway;
+        this.alertRouteService = alertRouteService;
+        this.callbackExecutor = callbackExecutor;
+    }
 
     /**
      * Create a new contact request (trusted contact or protégée)
@@ -188,6 +206,7 @@ public class ContactRequestService {
 
         // Add the relationship to both users' linked contacts
         createLinkedContactRelationship(request, approvingUserUid);
+        alertRouteService.refresh(request.getRequesterUid(), approvingUserUid);
 
         // Send push notification to the requester
         sendApprovalNotification(request, approvingUserUid);
@@ -392,19 +411,27 @@ public class ContactRequestService {
             }
 
             OutboundMessage message =
-                new OutboundMessage(ContactRequestService.NOTIFICATION_TITLE_RECEIVED, body, data, tokens);
-            var             result  = notificationGateway.send(message);
-
-            log.info("Sent {} notification to target UID: {} - success: {}, failure: {}",
-                     ContactRequestService.LOG_TYPE_RECEIVED, request.getTargetUid(), result.success(),
-                     result.failure());
-
-            // Clean up invalid tokens if any
-            if (!result.invalidTokens().isEmpty()) {
-                log.info("Cleaning up {} invalid tokens for target UID: {}",
-                        result.invalidTokens().size(), request.getTargetUid());
-                result.invalidTokens().forEach(deviceTokenService::deleteToken);
-            }
+                new OutboundMessage(ContactRequestService.NOTIFICATION_TITLE_RECEIVED, body, data, tokens,
+                                    NotificationPriority.LOW);
+
+            // Fire and forget - the request is not held while FCM answers
+            notificationGateway.sendAsync(message).whenCompleteAsync((result, error) -> {
+                if (error != null) {
+                    log.error("Failed to send {} notification for request: {}", ContactRequestService.LOG_TYPE_RECEIVED,
+                              request.getId(), error);
+                    return;
+                }
+                log.info("Sent {} notification to target UID: {} - success: {}, failure: {}",
+                         ContactRequestService.LOG_TYPE_RECEIVED, request.getTargetUid(), result.success(),
+                         result.failure());
+
+                // Clean up invalid tokens if any
+                if (!result.invalidTokens().isEmpty()) {
+                    log.info("Cleaning up {} invalid tokens for target UID: {}",
+                            result.invalidTokens().size(), request.getTargetUid());
+                    invalidTokenPruner.enqueue(result.invalidTokens());
+                }
+            }, callbackExecutor);
 
         } catch (Exception e) {
             log.error("Failed to send {} notification for request: {}", ContactRequestService.LOG_TYPE_RECEIVED, request.getId(), e);
@@ -426,18 +453,24 @@ public class ContactRequestService {
                 return;
             }
 
-            OutboundMessage message = new OutboundMessage(title, body, data, tokens);
-            var             result  = notificationGateway.send(message);
+            OutboundMessage message = new OutboundMessage(title, body, data, tokens, NotificationPriority.LOW);
 
-            log.info("Sent {} notification to requester UID: {} - success: {}, failure: {}", notificationType,
-                     request.getRequesterUid(), result.success(), result.failure());
-
-            // Clean up invalid tokens if any
-            if (!result.invalidTokens().isEmpty()) {
-                log.info("Cleaning up {} invalid tokens for UID: {}", result.invalidTokens().size(),
-                         request.getRequesterUid());
-                result.invalidTokens().forEach(deviceTokenService::deleteToken);
-            }
+            // Fire and forget - the request is not held while FCM answers
+            notificationGateway.sendAsync(message).whenCompleteAsync((result, error) -> {
+                if (error != null) {
+                    log.error("Failed to send {} notification for request: {}", notificationType, request.getId(), error);
+                    return;
+                }
+                log.info("Sent {} notification to requester UID: {} - success: {}, failure: {}", notificationType,
+                         request.getRequesterUid(), result.success(), result.failure());
+
+                // Clean up invalid tokens if any
+                if (!result.invalidTokens().isEmpty()) {
+                    log.info("Cleaning up {} invalid tokens for UID: {}", result.invalidTokens().size(),
+                             request.getRequesterUid());
+                    invalidTokenPruner.enqueue(result.invalidTokens());
+                }
+            }, callbackExecutor);
 
         }
         catch (Exception e) {
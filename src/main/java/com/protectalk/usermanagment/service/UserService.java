@@ -29,6 +29,7 @@ public class UserService {
     private final FirebaseAuth firebaseAuth;  // Injected once (configure in a @Configuration bean)
     private final DeviceTokenService deviceTokenService;
     private final ContactRequestRepository contactRequestRepository;
+    private final AlertRouteService alertRouteService;
 
     /**
      * Create or update user profile after client-side Firebase registration
@@ -40,10 +41,12 @@ public class UserService {
                         .firebaseUid(firebaseUid)
                         .build());
 
+        String previousPhoneNumber = entity.getPhoneNumber();
         entity.setPhoneNumber(req.phoneNumber());
         entity.setName(req.name());
 
         userRepository.save(entity);
+        alertRouteService.refreshForPhoneChange(previousPhoneNumber, entity.getPhoneNumber());
         log.info("Successfully saved profile for UID: {}", firebaseUid);
     }
 
@@ -60,9 +63,11 @@ public class UserService {
                         .firebaseUid(firebaseUid)
                         .build());
 
+        String previousPhoneNumber = entity.getPhoneNumber();
         entity.setPhoneNumber(request.phoneNumber());
         entity.setName(request.name());
         userRepository.save(entity);
+        alertRouteService.refreshForPhoneChange(previousPhoneNumber, entity.getPhoneNumber());
         log.debug("User profile saved for UID: {}", firebaseUid);
 
         // 2. Register device token using existing device service
@@ -173,40 +178,16 @@ public class UserService {
     }
 
     /**
-     * Generic method to get FCM tokens for contacts of a specific type
+     * Generic method to get FCM tokens for contacts of a specific type.
+     * One aggregation (user -> linked contacts -> contact users -> device tokens) instead of 1 + 2N queries.
      */
     private List<String> getContactTokensByType(String userId, ContactType contactType) {
         log.debug("Getting {} tokens for user: {}", contactType, userId);
 
-        return userRepository.findByFirebaseUid(userId)
-                .map(user -> {
-                    if (user.getLinkedContacts() == null) {
-                        return List.<String>of();
-                    }
-
-                    // Get phone numbers of contacts with the specified type
-                    List<String> contactPhones = user.getLinkedContacts().stream()
-                            .filter(contact -> contact.contactType() == contactType)
-                            .map(UserEntity.LinkedContact::phoneNumber)
-                            .toList();
-
-                    if (contactPhones.isEmpty()) {
-                        log.debug("No {} contacts found for user: {}", contactType, userId);
-                        return List.<String>of();
-                    }
-
-                    // Get FCM tokens for each contact
-                    List<String> tokens = contactPhones.stream()
-                            .flatMap(phone -> userRepository.findByPhoneNumber(phone)
-                                    .map(contact -> deviceTokenService.getDeviceTokensForUser(contact.getFirebaseUid()).stream())
-                                    .orElse(java.util.stream.Stream.empty()))
-                            .toList();
-
-                    log.debug("Found {} FCM tokens for {} {} contacts of user: {}",
-                             tokens.size(), contactPhones.size(), contactType, userId);
-                    return tokens;
-                })
-                .orElse(List.of());
+        List<String> tokens = userRepository.findLinkedContactTokens(userId, contactType.name());
+
+        log.debug("Found {} FCM tokens for {} contacts of user: {}", tokens.size(), contactType, userId);
+        return tokens;
     }
 
     /**
@@ -259,6 +240,8 @@ public class UserService {
             log.warn("Other user not found or has no linked contacts for phone: {}", contactPhoneNumber);
         }
 
+        alertRouteService.refresh(userUid, otherUser != null ? otherUser.getFirebaseUid() : null);
+
         log.info("Successfully removed {} contact {} from UID: {}", contactType, contactToRemove.name(), userUid);
     }
 
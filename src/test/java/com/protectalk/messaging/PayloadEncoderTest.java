@@ -0,0 +1,110 @@
+package com.protectalk.messaging;
+
+import com.protectalk.messaging.PayloadEncoder.Field;
+import com.protectalk.messaging.PayloadEncoder.Mode;
+import com.protectalk.messaging.PayloadEncoder.Payload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadEncoderTest {
+
+    private static final int MAX_BYTES = 200;
+    // "truncated" + "true", kept free for the marker
+    private static final int RESERVE   = 13;
+
+    private PayloadEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        encoder = new PayloadEncoder(MAX_BYTES, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void keepsFieldsThatFit() {
+        Payload payload = encoder.encode("Title", "Body", List.of(new Field("callId", "abc", Mode.REQUIRED),
+                                                                  new Field("caller", "+15550100", Mode.OPTIONAL)));
+
+        assertThat(payload.truncated()).isFalse();
+        assertThat(payload.data()).containsEntry("callId", "abc")
+                                  .containsEntry("caller", "+15550100")
+                                  .doesNotContainKey(PayloadEncoder.TRUNCATED_KEY);
+        assertThat(payload.bytes()).isEqualTo(5 + 4 + 6 + 3 + 6 + 9);
+    }
+
+    @Test
+    void cutsTruncatableFieldExactlyAtTheByteLimit() {
+        Payload payload = encoder.encode("T", "B", List.of(new Field("details", "x".repeat(500), Mode.TRUNCATABLE)));
+
+        assertThat(payload.truncated()).isTrue();
+        assertThat(payload.data()).containsEntry(PayloadEncoder.TRUNCATED_KEY, "true");
+        assertThat(payload.data().get("details")).hasSize(MAX_BYTES - RESERVE - 2 - 7);
+        assertThat(payload.bytes()).isEqualTo(MAX_BYTES);
+        assertThat(payload.bytes()).isEqualTo(measured(payload, "T", "B"));
+    }
+
+    @Test
+    void neverSplitsATwoByteCharacter() {
+        Payload payload = encoder.encode("T", "B", List.of(new Field("details", "é".repeat(200), Mode.TRUNCATABLE)));
+
+        String excerpt = payload.data().get("details");
+        // 178 bytes of room: 89 whole characters
+        assertThat(excerpt).isEqualTo("é".repeat(89));
+        assertThat(payload.bytes()).isEqualTo(measured(payload, "T", "B")).isLessThanOrEqualTo(MAX_BYTES);
+    }
+
+    @Test
+    void neverSplitsASurrogatePair() {
+        // 4 UTF-8 bytes and two chars each; 178 bytes of room fit 44 with 2 bytes to spare
+        Payload payload = encoder.encode("T", "B", List.of(new Field("details", "😀".repeat(100), Mode.TRUNCATABLE)));
+
+        String excerpt = payload.data().get("details");
+        assertThat(excerpt).isEqualTo("😀".repeat(44));
+        assertThat(Character.isHighSurrogate(excerpt.charAt(excerpt.length() - 1))).isFalse();
+        assertThat(payload.bytes()).isEqualTo(measured(payload, "T", "B")).isLessThanOrEqualTo(MAX_BYTES);
+    }
+
+    @Test
+    void dropsOptionalFieldThatDoesNotFit() {
+        Payload payload = encoder.encode("T", "B", List.of(new Field("callId", "abc", Mode.REQUIRED),
+                                                           new Field("transcript", "x".repeat(300), Mode.OPTIONAL)));
+
+        assertThat(payload.truncated()).isTrue();
+        assertThat(payload.data()).containsOnlyKeys("callId", PayloadEncoder.TRUNCATED_KEY);
+    }
+
+    @Test
+    void dropsTruncatableFieldWhenTooLittleRoomIsLeft() {
+        Payload payload = encoder.encode("T", "B", List.of(new Field("filler", "x".repeat(150), Mode.REQUIRED),
+                                                           new Field("details", "y".repeat(100), Mode.TRUNCATABLE)));
+
+        assertThat(payload.truncated()).isTrue();
+        assertThat(payload.data()).doesNotContainKey("details");
+    }
+
+    @Test
+    void keepsRequiredFieldsEvenOverBudget() {
+        Payload payload = encoder.encode("T", "B", List.of(new Field("callId", "x".repeat(300), Mode.REQUIRED)));
+
+        assertThat(payload.truncated()).isFalse();
+        assertThat(payload.data()).containsKey("callId");
+        assertThat(payload.bytes()).isGreaterThan(MAX_BYTES);
+    }
+
+    private static int measured(Payload payload, String title, String body) {
+        int bytes = utf8(title) + utf8(body);
+        for (var entry : payload.data().entrySet()) {
+            bytes += utf8(entry.getKey()) + utf8(entry.getValue());
+        }
+        return bytes;
+    }
+
+    private static int utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,157 @@
+package com.protectalk.messaging.fcm;
+
+import com.protectalk.messaging.fcm.CircuitBreaker.Permit;
+import com.protectalk.messaging.fcm.CircuitBreaker.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final long     FAST      = Duration.ofMillis(10).toNanos();
+    private static final long     SLOW      = Duration.ofSeconds(3).toNanos();
+    private static final Duration OPEN_TIME = Duration.ofSeconds(30);
+
+    private long           now;
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        now = 1_000_000_000L;
+        // window 10, at least 4 calls, 50% failures or 80% slow calls open it, 2 probes
+        breaker = new CircuitBreaker(10, 4, 50, Duration.ofSeconds(2), 80, OPEN_TIME, 2, () -> now);
+    }
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        call(true);
+        call(true);
+        call(true);
+
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        call(false);
+        call(false);
+        call(true);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+        call(true);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquire()).isNull();
+        assertThat(breaker.isCallPermitted()).isFalse();
+        assertThat(breaker.remainingOpen()).isEqualTo(OPEN_TIME);
+    }
+
+    @Test
+    void opensWhenSlowCallRateReachesThreshold() {
+        for (int i = 0; i < 4; i++) {
+            breaker.record(breaker.tryAcquire(), SLOW, false);
+        }
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void oldOutcomesLeaveTheWindow() {
+        breaker = new CircuitBreaker(10, 10, 50, Duration.ofSeconds(2), 80, OPEN_TIME, 2, () -> now);
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        for (int i = 0; i < 10; i++) {
+            call(false);
+        }
+
+        // the four failures were pushed out by ten successes: 5 of the last 10 would be needed to open
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+        call(true);
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void halfOpensAfterOpenDurationAndClosesWhenProbesSucceed() {
+        open();
+        now += OPEN_TIME.toNanos();
+
+        assertThat(breaker.isCallPermitted()).isTrue();
+        Permit first = breaker.tryAcquire();
+        Permit second = breaker.tryAcquire();
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(breaker.tryAcquire()).as("only two probes").isNull();
+
+        breaker.record(first, FAST, false);
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        breaker.record(second, FAST, false);
+
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+        assertThat(breaker.tryAcquire()).isNotNull();
+    }
+
+    @Test
+    void reopensWhenAProbeFailsOrIsSlow() {
+        open();
+        now += OPEN_TIME.toNanos();
+        breaker.record(breaker.tryAcquire(), FAST, true);
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+
+        now += OPEN_TIME.toNanos();
+        breaker.record(breaker.tryAcquire(), SLOW, false);
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.remainingOpen()).isEqualTo(OPEN_TIME);
+    }
+
+    @Test
+    void ignoresLateOutcomeOfCallAdmittedBeforeOpening() {
+        Permit stale = breaker.tryAcquire();
+        open();
+        now += OPEN_TIME.toNanos();
+        Permit probe = breaker.tryAcquire();
+
+        // a failure admitted while CLOSED must not reopen the HALF_OPEN breaker
+        breaker.record(stale, FAST, true);
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+
+        breaker.record(probe, FAST, false);
+        breaker.record(breaker.tryAcquire(), FAST, false);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void ignoresLateProbeOutcomeAfterClosing() {
+        open();
+        now += OPEN_TIME.toNanos();
+        Permit first = breaker.tryAcquire();
+        Permit second = breaker.tryAcquire();
+        breaker.record(first, FAST, false);
+        breaker.record(second, FAST, false);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+        // a repeated probe result is from the HALF_OPEN generation and does not count in the new window
+        for (int i = 0; i < 4; i++) {
+            breaker.record(first, FAST, true);
+        }
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    }
+
+    private void call(boolean failed) {
+        breaker.record(breaker.tryAcquire(), FAST, failed);
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+}
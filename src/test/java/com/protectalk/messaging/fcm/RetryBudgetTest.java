@@ -0,0 +1,81 @@
+package com.protectalk.messaging.fcm;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RetryBudgetTest {
+
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        now = 1_000_000_000L;
+    }
+
+    @Test
+    void startsFull() {
+        var budget = new RetryBudget(0.2, 5, 100, () -> now);
+
+        assertThat(budget.balance()).isEqualTo(100);
+    }
+
+    @Test
+    void firstAttemptsDepositRatioCredits() {
+        var budget = new RetryBudget(0.2, 0, 100, () -> now);
+        budget.tryAcquire(100);
+
+        budget.deposit(50);
+
+        assertThat(budget.balance()).isCloseTo(10, within(1e-9));
+        assertThat(budget.tryAcquire(25)).as("one credit per retried token").isEqualTo(10);
+        assertThat(budget.balance()).isCloseTo(0, within(1e-9));
+    }
+
+    @Test
+    void depositsNeverExceedMaxBalance() {
+        var budget = new RetryBudget(0.5, 0, 100, () -> now);
+
+        budget.deposit(1000);
+
+        assertThat(budget.balance()).isEqualTo(100);
+    }
+
+    @Test
+    void partialAcquireGrantsWholeCreditsOnly() {
+        var budget = new RetryBudget(0.25, 0, 100, () -> now);
+        budget.tryAcquire(100);
+        budget.deposit(10); // 2.5 credits
+
+        assertThat(budget.tryAcquire(5)).isEqualTo(2);
+        assertThat(budget.balance()).isCloseTo(0.5, within(1e-9));
+    }
+
+    @Test
+    void acquireAllTakesEverythingOrNothing() {
+        var budget = new RetryBudget(0.2, 0, 100, () -> now);
+        budget.tryAcquire(100);
+        budget.deposit(40); // 8 credits
+
+        assertThat(budget.tryAcquireAll(10)).isFalse();
+        assertThat(budget.balance()).isCloseTo(8, within(1e-9));
+        assertThat(budget.tryAcquireAll(8)).isTrue();
+        assertThat(budget.balance()).isCloseTo(0, within(1e-9));
+    }
+
+    @Test
+    void refillsAtMinPerSecondUpToMaxBalance() {
+        var budget = new RetryBudget(0.2, 5, 20, () -> now);
+        budget.tryAcquire(20);
+
+        now += Duration.ofMillis(1500).toNanos();
+        assertThat(budget.balance()).isCloseTo(7.5, within(1e-6));
+
+        now += Duration.ofMinutes(1).toNanos();
+        assertThat(budget.balance()).isEqualTo(20);
+    }
+}
@@ -0,0 +1,97 @@
+package com.protectalk.security.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedRateLimiterTest {
+
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        now = 1_000_000_000L;
+    }
+
+    @Test
+    void allowsBurstThenRejects() {
+        var limiter = new StripedRateLimiter(16, 10, 5, () -> now);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("client")).isTrue();
+        }
+        assertThat(limiter.tryAcquire("client")).isFalse();
+    }
+
+    @Test
+    void refillsAtPermitsPerSecond() {
+        var limiter = new StripedRateLimiter(16, 10, 5, () -> now);
+        drain(limiter, "client");
+
+        now += Duration.ofMillis(99).toNanos();
+        assertThat(limiter.tryAcquire("client")).as("0.99 permits").isFalse();
+
+        now += Duration.ofMillis(1).toNanos();
+        assertThat(limiter.tryAcquire("client")).isTrue();
+        assertThat(limiter.tryAcquire("client")).isFalse();
+
+        now += Duration.ofMillis(300).toNanos();
+        assertThat(drain(limiter, "client")).isEqualTo(3);
+    }
+
+    @Test
+    void refillIsCappedAtBurst() {
+        var limiter = new StripedRateLimiter(16, 10, 5, () -> now);
+        drain(limiter, "client");
+
+        now += Duration.ofHours(1).toNanos();
+
+        assertThat(drain(limiter, "client")).isEqualTo(5);
+    }
+
+    @Test
+    void rejectedAttemptsDoNotDelayRefill() {
+        var limiter = new StripedRateLimiter(16, 10, 5, () -> now);
+        drain(limiter, "client");
+
+        for (int i = 0; i < 9; i++) {
+            now += Duration.ofMillis(10).toNanos();
+            assertThat(limiter.tryAcquire("client")).isFalse();
+        }
+        now += Duration.ofMillis(11).toNanos();
+
+        assertThat(limiter.tryAcquire("client")).isTrue();
+    }
+
+    @Test
+    void keysOnDifferentStripesHaveOwnBuckets() {
+        var limiter = new StripedRateLimiter(1024, 10, 2, () -> now);
+        drain(limiter, "a");
+
+        // single-character keys hash to distinct stripes
+        assertThat(limiter.tryAcquire("b")).isTrue();
+        assertThat(limiter.tryAcquire("a")).isFalse();
+    }
+
+    @Test
+    void collidingKeysShareABucket() {
+        var limiter = new StripedRateLimiter(2, 10, 2, () -> now);
+
+        // "a" and "c" hash to the same of two stripes
+        assertThat(limiter.tryAcquire("a")).isTrue();
+        assertThat(limiter.tryAcquire("c")).isTrue();
+        assertThat(limiter.tryAcquire("a")).isFalse();
+        assertThat(limiter.tryAcquire("b")).isTrue();
+    }
+
+    private static int drain(StripedRateLimiter limiter, String key) {
+        int granted = 0;
+        while (limiter.tryAcquire(key)) {
+            granted++;
+        }
+        return granted;
+    }
+}
@@ -0,0 +1,212 @@
+package com.protectalk.security.token;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.GetUsersResult;
+import com.google.firebase.auth.UserRecord;
+import com.protectalk.security.model.FirebasePrincipal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OfflineTokenVerifierTest {
+
+    private static final String       PROJECT_ID = "protectalk-test";
+    private static final String       KEY_ID     = "key-1";
+    private static final String       UID        = "user-1";
+    private static final Instant      NOW        = Instant.parse("2026-01-01T12:00:00Z");
+    private static final ObjectMapper JSON       = new ObjectMapper();
+
+    private KeyPair              signingKey;
+    private FirebaseAuth         firebaseAuth;
+    private RevocationTable      revocations;
+    private OfflineTokenVerifier verifier;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        signingKey = rsaKeyPair();
+        firebaseAuth = mock(FirebaseAuth.class);
+        revocations = new RevocationTable(firebaseAuth, Duration.ofHours(1), 1000);
+        verifier = new OfflineTokenVerifier(PROJECT_ID, Map.of(KEY_ID, signingKey.getPublic())::get, revocations,
+                                            Clock.fixed(NOW, ZoneOffset.UTC), Duration.ofMinutes(1));
+    }
+
+    @Test
+    void acceptsTokenSignedWithKnownKey() throws Exception {
+        FirebasePrincipal principal = verifier.verify(sign(claims(), signingKey.getPrivate(), KEY_ID, "RS256"));
+
+        assertThat(principal.uid()).isEqualTo(UID);
+        assertThat(principal.email()).isEqualTo("user@example.com");
+    }
+
+    @Test
+    void rejectsTokenSignedWithAnotherKey() throws Exception {
+        String token = sign(claims(), rsaKeyPair().getPrivate(), KEY_ID, "RS256");
+
+        assertRejected(token, TokenVerificationException.INVALID_ID_TOKEN);
+    }
+
+    @Test
+    void rejectsUnknownKeyId() throws Exception {
+        assertRejected(sign(claims(), signingKey.getPrivate(), "key-2", "RS256"), TokenVerificationException.INVALID_ID_TOKEN);
+    }
+
+    @Test
+    void rejectsOtherAlgorithms() throws Exception {
+        assertRejected(sign(claims(), signingKey.getPrivate(), KEY_ID, "none"), TokenVerificationException.INVALID_ID_TOKEN);
+    }
+
+    @Test
+    void rejectsWrongAudienceAndIssuer() throws Exception {
+        Map<String, Object> otherAudience = claims();
+        otherAudience.put("aud", "other-project");
+        Map<String, Object> otherIssuer = claims();
+        otherIssuer.put("iss", "https://securetoken.google.com/other-project");
+
+        assertRejected(sign(otherAudience, signingKey.getPrivate(), KEY_ID, "RS256"), TokenVerificationException.INVALID_ID_TOKEN);
+        assertRejected(sign(otherIssuer, signingKey.getPrivate(), KEY_ID, "RS256"), TokenVerificationException.INVALID_ID_TOKEN);
+    }
+
+    @Test
+    void rejectsExpiredTokenBeyondClockSkew() throws Exception {
+        Map<String, Object> withinSkew = claims();
+        withinSkew.put("exp", NOW.minusSeconds(30).getEpochSecond());
+        Map<String, Object> expired = claims();
+        expired.put("exp", NOW.minusSeconds(61).getEpochSecond());
+
+        assertThat(verifier.verify(sign(withinSkew, signingKey.getPrivate(), KEY_ID, "RS256")).uid()).isEqualTo(UID);
+        assertRejected(sign(expired, signingKey.getPrivate(), KEY_ID, "RS256"), TokenVerificationException.EXPIRED_ID_TOKEN);
+    }
+
+    @Test
+    void rejectsTokenIssuedInTheFuture() throws Exception {
+        Map<String, Object> future = claims();
+        future.put("iat", NOW.plusSeconds(120).getEpochSecond());
+
+        assertRejected(sign(future, signingKey.getPrivate(), KEY_ID, "RS256"), TokenVerificationException.INVALID_ID_TOKEN);
+    }
+
+    @Test
+    void rejectsMalformedToken() {
+        assertRejected("not-a-jwt", TokenVerificationException.INVALID_ARGUMENT);
+        assertRejected("a.b.c", TokenVerificationException.INVALID_ARGUMENT);
+    }
+
+    @Test
+    void rejectsTokenAuthenticatedBeforeRevocationAfterSweep() throws Exception {
+        String token = sign(claims(), signingKey.getPrivate(), KEY_ID, "RS256");
+        verifier.verify(token);
+
+        UserRecord user = user(UID, NOW.minusSeconds(60).toEpochMilli(), false);
+        GetUsersResult result = usersResult(Set.of(user));
+        when(firebaseAuth.getUsers(anyCollection())).thenReturn(result);
+        revocations.sweep();
+
+        assertRejected(token, TokenVerificationException.REVOKED_ID_TOKEN);
+    }
+
+    @Test
+    void rejectsDisabledAndDeletedUsersAfterSweep() throws Exception {
+        Map<String, Object> deletedUser = claims();
+        deletedUser.put("sub", "user-2");
+        String disabledToken = sign(claims(), signingKey.getPrivate(), KEY_ID, "RS256");
+        String deletedToken = sign(deletedUser, signingKey.getPrivate(), KEY_ID, "RS256");
+        verifier.verify(disabledToken);
+        verifier.verify(deletedToken);
+
+        UserRecord user = user(UID, 0, true);
+        GetUsersResult result = usersResult(Set.of(user));
+        when(firebaseAuth.getUsers(anyCollection())).thenReturn(result);
+        revocations.sweep();
+
+        assertRejected(disabledToken, TokenVerificationException.REVOKED_ID_TOKEN);
+        assertRejected(deletedToken, TokenVerificationException.REVOKED_ID_TOKEN);
+    }
+
+    @Test
+    void failedSweepKeepsPreviousRevocations() throws Exception {
+        String token = sign(claims(), signingKey.getPrivate(), KEY_ID, "RS256");
+        verifier.verify(token);
+        UserRecord user = user(UID, NOW.minusSeconds(60).toEpochMilli(), false);
+        GetUsersResult result = usersResult(Set.of(user));
+        when(firebaseAuth.getUsers(anyCollection())).thenReturn(result);
+        revocations.sweep();
+
+        when(firebaseAuth.getUsers(anyCollection())).thenThrow(mock(FirebaseAuthException.class));
+        revocations.sweep();
+
+        assertRejected(token, TokenVerificationException.REVOKED_ID_TOKEN);
+    }
+
+    // --- helpers ---
+
+    private void assertRejected(String token, String errorCode) {
+        assertThatThrownBy(() -> verifier.verify(token))
+                .isInstanceOf(TokenVerificationException.class)
+                .extracting(e -> ((TokenVerificationException) e).getErrorCode())
+                .isEqualTo(errorCode);
+    }
+
+    private static Map<String, Object> claims() {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("aud", PROJECT_ID);
+        claims.put("iss", "https://securetoken.google.com/" + PROJECT_ID);
+        claims.put("sub", UID);
+        claims.put("email", "user@example.com");
+        claims.put("iat", NOW.minusSeconds(300).getEpochSecond());
+        claims.put("auth_time", NOW.minusSeconds(600).getEpochSecond());
+        claims.put("exp", NOW.plusSeconds(3300).getEpochSecond());
+        return claims;
+    }
+
+    private static String sign(Map<String, Object> claims, PrivateKey key, String keyId, String algorithm) throws Exception {
+        Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+        String header = base64.encodeToString(JSON.writeValueAsBytes(Map.of("alg", algorithm, "kid", keyId, "typ", "JWT")));
+        String payload = base64.encodeToString(JSON.writeValueAsBytes(claims));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(key);
+        signature.update((header + "." + payload).getBytes(StandardCharsets.US_ASCII));
+        return header + "." + payload + "." + base64.encodeToString(signature.sign());
+    }
+
+    private static KeyPair rsaKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static UserRecord user(String uid, long tokensValidAfterMillis, boolean disabled) {
+        UserRecord user = mock(UserRecord.class);
+        when(user.getUid()).thenReturn(uid);
+        when(user.getTokensValidAfterTimestamp()).thenReturn(tokensValidAfterMillis);
+        when(user.isDisabled()).thenReturn(disabled);
+        return user;
+    }
+
+    private static GetUsersResult usersResult(Set<UserRecord> users) {
+        GetUsersResult result = mock(GetUsersResult.class);
+        when(result.getUsers()).thenReturn(users);
+        when(result.getNotFound()).thenReturn(Set.of());
+        return result;
+    }
+}
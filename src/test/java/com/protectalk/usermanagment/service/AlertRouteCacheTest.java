@@ -0,0 +1,116 @@
+package com.protectalk.usermanagment.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.protectalk.usermanagment.model.AlertRouteEntity;
+import com.protectalk.usermanagment.model.ContactType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Route cache against a single-node replica set: a write made outside this node's cache (as by another node)
+ * must reach it through the change stream.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AlertRouteCacheTest {
+
+    private static final String   UID     = "protegee-1";
+    private static final Duration TIMEOUT = Duration.ofSeconds(15);
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");  // starts as replica set rs0
+
+    private MongoClient         client;
+    private MongoTemplate       mongoTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private AlertRouteCache     cache;
+    private AtomicInteger       loads;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        client = MongoClients.create(MONGO.getReplicaSetUrl("protectalk"));
+        mongoTemplate = new MongoTemplate(client, "protectalk");
+        mongoTemplate.dropCollection(AlertRouteEntity.class);
+        mongoTemplate.save(AlertRouteEntity.builder()
+                                           .firebaseUid(UID)
+                                           .trustedContactTokens(List.of("token-a"))
+                                           .build());
+
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AlertRouteCache(mongoTemplate, true, 100, Duration.ofMinutes(5), Duration.ofMillis(200),
+                                    meterRegistry);
+        cache.start();
+        loads = new AtomicInteger();
+        await(() -> meterRegistry.get("alerts.route_cache.streaming").gauge().value() == 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.stop();
+        client.close();
+    }
+
+    @Test
+    void servesRepeatedReadsFromCache() {
+        assertThat(tokens()).containsExactly("token-a");
+        assertThat(tokens()).containsExactly("token-a");
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void changeStreamEventInvalidatesCachedRoute() throws Exception {
+        assertThat(tokens()).containsExactly("token-a");
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(UID)),
+                                  Update.update("trustedContactTokens", List.of("token-b")),
+                                  AlertRouteEntity.class);
+
+        await(() -> tokens().equals(List.of("token-b")));
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("alerts.route_cache.invalidation_lag").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void deletedRouteIsNotServedFromCache() throws Exception {
+        assertThat(tokens()).containsExactly("token-a");
+
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(UID)), AlertRouteEntity.class);
+
+        await(() -> tokens().isEmpty());
+    }
+
+    // --- helpers ---
+
+    private List<String> tokens() {
+        AlertRouteEntity route = cache.get(UID, uid -> {
+            loads.incrementAndGet();
+            return mongoTemplate.findById(uid, AlertRouteEntity.class);
+        });
+        return route == null ? List.of() : route.tokensFor(ContactType.TRUSTED_CONTACT);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within %s", TIMEOUT).isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}